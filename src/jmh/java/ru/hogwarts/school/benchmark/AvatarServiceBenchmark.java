@@ -0,0 +1,96 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockMultipartFile;
+import ru.hogwarts.school.dto.AvatarFileDto;
+import ru.hogwarts.school.dto.AvatarResponseDto;
+import ru.hogwarts.school.dto.StudentRequestDto;
+import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.service.StudentService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvatarServiceBenchmark {
+
+    private BenchmarkContext context;
+    private AvatarService avatarService;
+    private long readerId;
+    private long writerId;
+    private long uploaderId;
+    private int version;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkContext.start();
+        avatarService = context.bean(AvatarService.class);
+        StudentService studentService = context.bean(StudentService.class);
+        readerId = studentService.create(student("Читатель")).id();
+        writerId = studentService.create(student("Писатель")).id();
+        uploaderId = studentService.create(student("Загружающий")).id();
+        avatarService.uploadAvatar(readerId, BenchmarkContext.png(0));
+        avatarService.uploadAvatar(writerId, BenchmarkContext.png(0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        context.close();
+    }
+
+    // Каждый вызов получает новое содержимое, иначе хранилище блобов просто переиспользует файл
+    @State(Scope.Thread)
+    public static class FreshImage {
+        private MockMultipartFile file;
+
+        @Setup(Level.Invocation)
+        public void setUp(AvatarServiceBenchmark benchmark) throws IOException {
+            file = BenchmarkContext.png(++benchmark.version);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class NoAvatar {
+        @Setup(Level.Invocation)
+        public void setUp(AvatarServiceBenchmark benchmark) {
+            if (benchmark.avatarService.avatarExistsForStudent(benchmark.uploaderId)) {
+                benchmark.avatarService.deleteAvatarByStudentId(benchmark.uploaderId);
+            }
+        }
+    }
+
+    @Benchmark
+    public AvatarResponseDto readMetadata() {
+        return avatarService.getAvatarByStudentId(readerId);
+    }
+
+    @Benchmark
+    public AvatarFileDto readData() throws IOException {
+        AvatarFileDto file = avatarService.getAvatarFile(readerId);
+        avatarService.writeAvatarData(file, OutputStream.nullOutputStream());
+        return file;
+    }
+
+    @Benchmark
+    public AvatarResponseDto update(FreshImage image) throws IOException {
+        return avatarService.updateAvatar(writerId, image.file);
+    }
+
+    @Benchmark
+    public AvatarResponseDto upload(NoAvatar noAvatar, FreshImage image) throws IOException {
+        return avatarService.uploadAvatar(uploaderId, image.file);
+    }
+
+    private static StudentRequestDto student(String name) {
+        StudentRequestDto dto = new StudentRequestDto();
+        dto.setName(name);
+        dto.setAge(17);
+        return dto;
+    }
+}
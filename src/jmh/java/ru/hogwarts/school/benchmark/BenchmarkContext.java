@@ -0,0 +1,74 @@
+package ru.hogwarts.school.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+import ru.hogwarts.school.SchoolApplication;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Приложение без веб-сервера поверх отдельного встроенного PostgreSQL и временного каталога аватаров
+final class BenchmarkContext implements AutoCloseable {
+    private static final int IMAGE_SIDE = 128;
+
+    private final EmbeddedPostgres postgres;
+    private final Path avatarsDir;
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkContext(EmbeddedPostgres postgres, Path avatarsDir, ConfigurableApplicationContext context) {
+        this.postgres = postgres;
+        this.avatarsDir = avatarsDir;
+        this.context = context;
+    }
+
+    static BenchmarkContext start() throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        Path avatarsDir = Files.createTempDirectory("hogwarts-bench-avatars");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SchoolApplication.class)
+                .web(WebApplicationType.NONE)
+                // Аргументы командной строки, а не .properties(): у тех низший приоритет и application.properties их перекрывает
+                .run(
+                        "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=postgres",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                        "--logging.level.ru.hogwarts.school=WARN",
+                        "--avatars.dir.path=" + avatarsDir);
+        return new BenchmarkContext(postgres, avatarsDir, context);
+    }
+
+    // PNG для загрузки аватара; разный seed даёт разное содержимое, а значит и отдельный блоб
+    static MockMultipartFile png(int seed) throws IOException {
+        BufferedImage image = new BufferedImage(IMAGE_SIDE, IMAGE_SIDE, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < IMAGE_SIDE; y++) {
+            for (int x = 0; x < IMAGE_SIDE; x++) {
+                image.setRGB(x, y, (x * y + seed) * 0x010203);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return new MockMultipartFile("file", "avatar.png", "image/png", out.toByteArray());
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        postgres.close();
+        FileSystemUtils.deleteRecursively(avatarsDir);
+    }
+}
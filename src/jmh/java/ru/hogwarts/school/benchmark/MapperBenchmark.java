@@ -0,0 +1,88 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.hogwarts.school.dto.FacultyRequestDto;
+import ru.hogwarts.school.dto.FacultyResponseDto;
+import ru.hogwarts.school.dto.StudentRequestDto;
+import ru.hogwarts.school.dto.StudentResponseDto;
+import ru.hogwarts.school.mapper.FacultyMapper;
+import ru.hogwarts.school.mapper.StudentMapper;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+    private final StudentMapper studentMapper = new StudentMapper();
+    private final FacultyMapper facultyMapper = new FacultyMapper();
+
+    private Student student;
+    private StudentRequestDto studentRequest;
+    private Faculty faculty;
+    private FacultyRequestDto facultyRequest;
+
+    // Размер списка studentIds влияет только на конвертацию факультета
+    @State(Scope.Benchmark)
+    public static class StudentIds {
+        @Param({"0", "1000"})
+        private int size;
+
+        private List<Long> ids;
+
+        @Setup
+        public void setUp() {
+            ids = LongStream.rangeClosed(1, size).boxed().toList();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        faculty = new Faculty();
+        faculty.setId(1L);
+        faculty.setName("Гриффиндор");
+        faculty.setColor("красный");
+
+        student = new Student();
+        student.setId(1L);
+        student.setName("Гарри Поттер");
+        student.setAge(17);
+        student.setFaculty(faculty);
+
+        studentRequest = new StudentRequestDto();
+        studentRequest.setName("Гарри Поттер");
+        studentRequest.setAge(17);
+        studentRequest.setFacultyId(1L);
+
+        facultyRequest = new FacultyRequestDto();
+        facultyRequest.setName("Гриффиндор");
+        facultyRequest.setColor("красный");
+    }
+
+    @Benchmark
+    public StudentResponseDto studentToDto() {
+        return studentMapper.toDto(student);
+    }
+
+    @Benchmark
+    public Student studentToEntity() {
+        return studentMapper.toEntity(studentRequest);
+    }
+
+    @Benchmark
+    public FacultyResponseDto facultyToDto(StudentIds studentIds) {
+        return facultyMapper.toDto(faculty, studentIds.ids);
+    }
+
+    @Benchmark
+    public Faculty facultyToEntity() {
+        return facultyMapper.toEntity(facultyRequest);
+    }
+}
@@ -0,0 +1,131 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.hogwarts.school.dto.CursorPage;
+import ru.hogwarts.school.dto.FacultyRequestDto;
+import ru.hogwarts.school.dto.FacultyResponseDto;
+import ru.hogwarts.school.dto.FacultyStatsDto;
+import ru.hogwarts.school.dto.StudentNameDto;
+import ru.hogwarts.school.dto.StudentResponseDto;
+import ru.hogwarts.school.dto.StudentStatsDto;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.service.FacultyService;
+import ru.hogwarts.school.service.FacultyStatsService;
+import ru.hogwarts.school.service.StudentImportService;
+import ru.hogwarts.school.service.StudentService;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceReadBenchmark {
+    private static final int FACULTIES = 4;
+    private static final int STUDENTS = 10_000;
+
+    private BenchmarkContext context;
+    private StudentService studentService;
+    private FacultyService facultyService;
+    private FacultyStatsService facultyStatsService;
+    private StudentRepository studentRepository;
+    private long[] studentIds;
+    private long facultyId;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkContext.start();
+        studentService = context.bean(StudentService.class);
+        facultyService = context.bean(FacultyService.class);
+        facultyStatsService = context.bean(FacultyStatsService.class);
+        studentRepository = context.bean(StudentRepository.class);
+
+        long[] facultyIds = new long[FACULTIES];
+        for (int i = 0; i < FACULTIES; i++) {
+            FacultyRequestDto faculty = new FacultyRequestDto();
+            faculty.setName("Факультет " + i);
+            faculty.setColor("цвет " + i);
+            facultyIds[i] = facultyService.create(faculty).id();
+        }
+        facultyId = facultyIds[0];
+
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < STUDENTS; i++) {
+            body.append("{\"name\":\"Студент ").append(i).append("\",\"age\":").append(11 + i % 15)
+                    .append(",\"facultyId\":").append(facultyIds[i % FACULTIES]).append("}\n");
+        }
+        context.bean(StudentImportService.class)
+                .importNdjson(new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)));
+
+        studentIds = studentService.getAll(null, 100, "id", false).content().stream()
+                .mapToLong(StudentResponseDto::id).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        context.close();
+    }
+
+    private long nextStudentId() {
+        next = (next + 1) % studentIds.length;
+        return studentIds[next];
+    }
+
+    // Через кеш DTO: после прогрева - только попадания
+    @Benchmark
+    public StudentResponseDto readStudent() {
+        return studentService.read(nextStudentId());
+    }
+
+    // Мимо кеша: один запрос-проекция в БД
+    @Benchmark
+    public StudentResponseDto readStudentFromDb() {
+        return studentRepository.findDtoById(nextStudentId()).orElseThrow();
+    }
+
+    @Benchmark
+    public FacultyResponseDto readFaculty() {
+        return facultyService.read(facultyId);
+    }
+
+    @Benchmark
+    public List<StudentResponseDto> facultyStudents() {
+        return facultyService.getStudentsByFacultyId(facultyId);
+    }
+
+    @Benchmark
+    public CursorPage<StudentResponseDto> studentsPageByName() {
+        return studentService.getAll(null, 20, "name", false);
+    }
+
+    @Benchmark
+    public CursorPage<StudentResponseDto> studentsByAge() {
+        return studentService.findByAgeBetween(14, 16, null, 20);
+    }
+
+    @Benchmark
+    public List<StudentNameDto> searchByPrefix() {
+        return studentService.searchByPrefix("студент 12", 10);
+    }
+
+    @Benchmark
+    public List<FacultyResponseDto> filterFaculties() {
+        return facultyService.findByNameOrColor("культет 1");
+    }
+
+    @Benchmark
+    public StudentStatsDto studentStats() {
+        return studentService.getStats();
+    }
+
+    @Benchmark
+    public List<FacultyStatsDto> facultyStats() {
+        return facultyStatsService.getAll();
+    }
+}
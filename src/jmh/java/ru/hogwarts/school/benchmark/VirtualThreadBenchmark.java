@@ -0,0 +1,91 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.hogwarts.school.dto.AvatarFileDto;
+import ru.hogwarts.school.dto.StudentRequestDto;
+import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.service.StudentService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Всплеск из CONCURRENCY одновременных отдач аватара: JDBC за метаданными и запись в медленного клиента.
+// platform - пул из 200 потоков, как у Tomcat по умолчанию; virtual - виртуальный поток на запрос,
+// как при spring.threads.virtual.enabled=true. Результат - отданные аватары в секунду.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VirtualThreadBenchmark {
+    private static final int STUDENTS = 64;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int CONCURRENCY = 1000;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    // Задержка записи ответа - сеть до клиента, на ней поток запроса просто ждёт
+    @Param({"0", "5", "50"})
+    public int clientLatencyMs;
+
+    private BenchmarkContext context;
+    private AvatarService avatarService;
+    private ExecutorService executor;
+    private long[] studentIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkContext.start();
+        avatarService = context.bean(AvatarService.class);
+        StudentService studentService = context.bean(StudentService.class);
+        studentIds = new long[STUDENTS];
+        for (int i = 0; i < STUDENTS; i++) {
+            StudentRequestDto student = new StudentRequestDto();
+            student.setName("Студент " + i);
+            student.setAge(17);
+            studentIds[i] = studentService.create(student).id();
+            avatarService.uploadAvatar(studentIds[i], BenchmarkContext.png(i));
+        }
+        executor = "virtual".equals(threads)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENCY)
+    public long burst() throws Exception {
+        List<Future<Integer>> responses = new ArrayList<>(CONCURRENCY);
+        for (int i = 0; i < CONCURRENCY; i++) {
+            long studentId = studentIds[i % studentIds.length];
+            responses.add(executor.submit(() -> serve(studentId)));
+        }
+        long bytes = 0;
+        for (Future<Integer> response : responses) {
+            bytes += response.get();
+        }
+        return bytes;
+    }
+
+    private int serve(long studentId) throws IOException, InterruptedException {
+        AvatarFileDto file = avatarService.getAvatarFile(studentId);
+        avatarService.writeAvatarData(file, OutputStream.nullOutputStream());
+        if (clientLatencyMs > 0) {
+            Thread.sleep(clientLatencyMs);
+        }
+        return (int) file.fileSize();
+    }
+}
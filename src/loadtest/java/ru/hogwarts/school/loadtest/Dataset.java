@@ -0,0 +1,121 @@
+package ru.hogwarts.school.loadtest;
+
+import org.springframework.mock.web.MockMultipartFile;
+import ru.hogwarts.school.dto.CursorPage;
+import ru.hogwarts.school.dto.FacultyRequestDto;
+import ru.hogwarts.school.dto.StudentImportReportDto;
+import ru.hogwarts.school.dto.StudentResponseDto;
+import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.service.FacultyService;
+import ru.hogwarts.school.service.StudentImportService;
+import ru.hogwarts.school.service.StudentService;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Данные, которыми наполняется база перед прогоном, и то, из чего генерируются запросы
+record Dataset(long[] facultyIds,
+               long[] studentIds,
+               long[] avatarStudentIds,
+               List<String> filterQueries,
+               List<byte[]> images) {
+
+    private static final String[] COLORS = {
+            "алый", "золотой", "изумрудный", "серебряный", "сапфировый", "бронзовый", "канареечный", "чёрный"
+    };
+    private static final String[] NAMES = {
+            "Гарри", "Гермиона", "Рон", "Невилл", "Луна", "Джинни", "Драко", "Седрик", "Чжоу", "Симус"
+    };
+    private static final int IMAGE_SIDE = 128;
+    private static final int IMAGE_VARIANTS = 32;
+    private static final int FILTER_QUERIES = 256;
+    private static final int PAGE_SIZE = 100;
+
+    static Dataset seed(LoadTestContext context, LoadTestConfig config) throws IOException {
+        SplittableRandom random = new SplittableRandom(config.seed());
+        FacultyService facultyService = context.bean(FacultyService.class);
+        StudentService studentService = context.bean(StudentService.class);
+
+        long[] facultyIds = new long[config.faculties()];
+        List<String> facultyTexts = new ArrayList<>();
+        for (int i = 0; i < facultyIds.length; i++) {
+            FacultyRequestDto faculty = new FacultyRequestDto();
+            faculty.setName("Факультет " + i);
+            faculty.setColor(COLORS[i % COLORS.length] + " " + i);
+            facultyIds[i] = facultyService.create(faculty).id();
+            facultyTexts.add(faculty.getName().toLowerCase());
+            facultyTexts.add(faculty.getColor().toLowerCase());
+        }
+
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < config.students(); i++) {
+            body.append("{\"name\":\"").append(NAMES[random.nextInt(NAMES.length)]).append(' ').append(i)
+                    .append("\",\"age\":").append(random.nextInt(11, 26))
+                    .append(",\"facultyId\":").append(facultyIds[random.nextInt(facultyIds.length)]).append("}\n");
+        }
+        StudentImportReportDto report = context.bean(StudentImportService.class)
+                .importNdjson(new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)));
+        System.out.println("Импортировано студентов: " + report.imported() + ", с ошибками: " + report.failed());
+
+        long[] studentIds = allStudentIds(studentService, config.students());
+
+        List<byte[]> images = new ArrayList<>(IMAGE_VARIANTS);
+        for (int i = 0; i < IMAGE_VARIANTS; i++) {
+            images.add(png(i));
+        }
+        AvatarService avatarService = context.bean(AvatarService.class);
+        long[] avatarStudentIds = new long[config.avatars()];
+        for (int i = 0; i < avatarStudentIds.length; i++) {
+            avatarStudentIds[i] = studentIds[i];
+            avatarService.uploadAvatar(avatarStudentIds[i],
+                    new MockMultipartFile("file", "avatar.png", "image/png", images.get(i % images.size())));
+        }
+
+        // Подстроки длиной 3-6 символов из названий и цветов - то, что набирают в поиске
+        List<String> filterQueries = new ArrayList<>(FILTER_QUERIES);
+        for (int i = 0; i < FILTER_QUERIES; i++) {
+            String text = facultyTexts.get(random.nextInt(facultyTexts.size()));
+            int length = Math.min(text.length(), random.nextInt(3, 7));
+            int start = random.nextInt(text.length() - length + 1);
+            filterQueries.add(text.substring(start, start + length));
+        }
+        return new Dataset(facultyIds, studentIds, avatarStudentIds, List.copyOf(filterQueries), List.copyOf(images));
+    }
+
+    private static long[] allStudentIds(StudentService studentService, int expected) {
+        long[] ids = new long[expected];
+        int count = 0;
+        String cursor = null;
+        do {
+            CursorPage<StudentResponseDto> page = studentService.getAll(cursor, PAGE_SIZE, "id", false);
+            for (StudentResponseDto student : page.content()) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, ids.length * 2);
+                }
+                ids[count++] = student.id();
+            }
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return Arrays.copyOf(ids, count);
+    }
+
+    private static byte[] png(int seed) throws IOException {
+        BufferedImage image = new BufferedImage(IMAGE_SIDE, IMAGE_SIDE, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < IMAGE_SIDE; y++) {
+            for (int x = 0; x < IMAGE_SIDE; x++) {
+                image.setRGB(x, y, (x * y + seed) * 0x010203);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,71 @@
+package ru.hogwarts.school.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpRequest;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Эндпоинт из смеси нагрузки: вес, генератор запросов и накопленные задержки (в микросекундах)
+final class Endpoint {
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final String name;
+    private final int weight;
+    private final Function<SplittableRandom, HttpRequest> requests;
+    private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    Endpoint(String name, int weight, Function<SplittableRandom, HttpRequest> requests) {
+        this.name = name;
+        this.weight = weight;
+        this.requests = requests;
+    }
+
+    String name() {
+        return name;
+    }
+
+    int weight() {
+        return weight;
+    }
+
+    HttpRequest nextRequest(SplittableRandom random) {
+        return requests.apply(random);
+    }
+
+    void recordSuccess(long latencyNanos) {
+        latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_LATENCY_MICROS));
+    }
+
+    void recordError() {
+        errors.increment();
+    }
+
+    void recordDropped() {
+        dropped.increment();
+    }
+
+    Histogram latencies() {
+        return latencies;
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    // После прогрева считаем заново
+    void reset() {
+        latencies.reset();
+        errors.reset();
+        dropped.reset();
+    }
+}
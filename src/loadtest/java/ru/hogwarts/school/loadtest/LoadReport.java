@@ -0,0 +1,63 @@
+package ru.hogwarts.school.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+// Отчёт в TSV без временных меток: строки отсортированы по эндпоинту, чтобы два прогона сравнивались обычным diff
+final class LoadReport {
+    private static final String HEADER = "endpoint\tcount\terrors\tdropped\tthroughput_rps\tp50_ms\tp99_ms\tp999_ms\tmax_ms";
+
+    private LoadReport() {
+    }
+
+    static List<String> lines(LoadTestConfig config, List<Endpoint> endpoints, Duration elapsed) {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.ROOT,
+                "# rate=%s/s duration=%s warmup=%s faculties=%d students=%d avatars=%d seed=%d virtualThreads=%s mix=%s",
+                config.rate(), config.duration(), config.warmup(), config.faculties(), config.students(),
+                config.avatars(), config.seed(), config.virtualThreads(), config.mix()));
+        lines.add(HEADER);
+        double seconds = elapsed.toNanos() / 1e9;
+        Histogram total = new Histogram(3);
+        long errors = 0;
+        long dropped = 0;
+        List<Endpoint> sorted = endpoints.stream().sorted(Comparator.comparing(Endpoint::name)).toList();
+        for (Endpoint endpoint : sorted) {
+            Histogram latencies = endpoint.latencies().copy();
+            lines.add(row(endpoint.name(), latencies, endpoint.errors(), endpoint.dropped(), seconds));
+            total.add(latencies);
+            errors += endpoint.errors();
+            dropped += endpoint.dropped();
+        }
+        lines.add(row("total", total, errors, dropped, seconds));
+        return lines;
+    }
+
+    static void write(Path path, List<String> lines) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.write(path, lines, StandardCharsets.UTF_8);
+    }
+
+    private static String row(String name, Histogram latencies, long errors, long dropped, double seconds) {
+        return String.format(Locale.ROOT, "%s\t%d\t%d\t%d\t%.1f\t%.3f\t%.3f\t%.3f\t%.3f",
+                name, latencies.getTotalCount(), errors, dropped, latencies.getTotalCount() / seconds,
+                millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(99)),
+                millis(latencies.getValueAtPercentile(99.9)), millis(latencies.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,111 @@
+package ru.hogwarts.school.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+// Поднимает приложение на встроенном PostgreSQL, наполняет его данными, прогревает и гоняет смесь запросов
+// с заданной интенсивностью; перцентили задержек и пропускная способность по эндпоинтам пишутся в report
+public final class LoadTest {
+    private static final String BOUNDARY = "hogwarts-load-test-boundary";
+    private static final String[] SORTS = {"id", "name", "age"};
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        HttpClient client = HttpClient.newBuilder()
+                .executor(executor)
+                .connectTimeout(config.timeout())
+                .build();
+        try (LoadTestContext context = LoadTestContext.start(config)) {
+            Dataset dataset = Dataset.seed(context, config);
+            List<Endpoint> endpoints = endpoints(config, dataset, "http://localhost:" + context.port());
+            OpenLoadGenerator generator = new OpenLoadGenerator(client, endpoints, config);
+
+            System.out.println("Прогрев: " + config.warmup());
+            generator.run(config.warmup());
+            endpoints.forEach(Endpoint::reset);
+
+            System.out.println("Замер: " + config.duration() + " при " + config.rate() + " запросов/с");
+            Duration elapsed = generator.run(config.duration());
+
+            List<String> report = LoadReport.lines(config, endpoints, elapsed);
+            LoadReport.write(config.report(), report);
+            report.forEach(System.out::println);
+            System.out.println("Отчёт: " + config.report().toAbsolutePath());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<Endpoint> endpoints(LoadTestConfig config, Dataset dataset, String baseUrl) {
+        Map<String, Function<SplittableRandom, HttpRequest>> known = Map.of(
+                "students", random -> get(config, baseUrl + "/students?size=20&sort=" + pick(random, SORTS)),
+                "faculty-filter", random -> get(config, baseUrl + "/faculties/filter?query="
+                        + URLEncoder.encode(pick(random, dataset.filterQueries()), StandardCharsets.UTF_8)),
+                "faculty-students", random -> get(config, baseUrl + "/faculties/"
+                        + pick(random, dataset.facultyIds()) + "/students"),
+                "avatar-download", random -> get(config, baseUrl + "/avatars/students/"
+                        + pick(random, dataset.avatarStudentIds()) + "/from-db"),
+                "avatar-upload", random -> HttpRequest.newBuilder(URI.create(baseUrl + "/avatars/students/"
+                                + pick(random, dataset.avatarStudentIds())))
+                        .timeout(config.timeout())
+                        .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                        .PUT(HttpRequest.BodyPublishers.ofByteArray(multipart(pick(random, dataset.images()))))
+                        .build());
+
+        List<Endpoint> endpoints = new ArrayList<>();
+        config.mix().forEach((name, weight) -> {
+            Function<SplittableRandom, HttpRequest> requests = known.get(name);
+            if (requests == null) {
+                throw new IllegalArgumentException("Неизвестный эндпоинт в mix: " + name + ", доступны " + known.keySet());
+            }
+            endpoints.add(new Endpoint(name, weight, requests));
+        });
+        return endpoints;
+    }
+
+    private static HttpRequest get(LoadTestConfig config, String url) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(config.timeout())
+                .header("Accept", "application/json, image/png")
+                .GET()
+                .build();
+    }
+
+    private static byte[] multipart(byte[] png) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(png.length + 256);
+        body.writeBytes(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"avatar.png\"\r\n"
+                + "Content-Type: image/png\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.writeBytes(png);
+        body.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return body.toByteArray();
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static long pick(SplittableRandom random, long[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static <T> T pick(SplittableRandom random, List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+}
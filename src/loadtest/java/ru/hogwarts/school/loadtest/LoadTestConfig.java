@@ -0,0 +1,78 @@
+package ru.hogwarts.school.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Параметры прогона в виде key=value; всё, что не задано, берётся по умолчанию
+record LoadTestConfig(int faculties,
+                      int students,
+                      int avatars,
+                      double rate,
+                      Duration warmup,
+                      Duration duration,
+                      Duration timeout,
+                      int maxInFlight,
+                      long seed,
+                      boolean virtualThreads,
+                      Map<String, Integer> mix,
+                      Path report) {
+
+    static final String DEFAULT_MIX =
+            "students:35,faculty-filter:20,faculty-students:20,avatar-download:20,avatar-upload:5";
+
+    static LoadTestConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Ожидался параметр вида key=value: " + arg);
+            }
+            values.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        LoadTestConfig config = new LoadTestConfig(
+                Integer.parseInt(values.getOrDefault("faculties", "8")),
+                Integer.parseInt(values.getOrDefault("students", "10000")),
+                Integer.parseInt(values.getOrDefault("avatars", "200")),
+                Double.parseDouble(values.getOrDefault("rate", "50")),
+                Duration.parse(values.getOrDefault("warmup", "PT30S")),
+                Duration.parse(values.getOrDefault("duration", "PT60S")),
+                Duration.parse(values.getOrDefault("timeout", "PT10S")),
+                Integer.parseInt(values.getOrDefault("maxInFlight", "2000")),
+                Long.parseLong(values.getOrDefault("seed", "42")),
+                Boolean.parseBoolean(values.getOrDefault("virtualThreads", "false")),
+                parseMix(values.getOrDefault("mix", DEFAULT_MIX)),
+                Path.of(values.getOrDefault("report", "target/loadtest-report.tsv")));
+        if (config.faculties < 1 || config.students < 1 || config.avatars < 1 || config.avatars > config.students) {
+            throw new IllegalArgumentException("Нужны хотя бы один факультет и студент, аватаров - не больше, чем студентов");
+        }
+        if (config.rate <= 0 || config.maxInFlight < 1) {
+            throw new IllegalArgumentException("Интенсивность и лимит одновременных запросов должны быть положительными");
+        }
+        return config;
+    }
+
+    // mix=students:35,avatar-upload:5 - относительные веса эндпоинтов
+    private static Map<String, Integer> parseMix(String value) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Неверный элемент mix: " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Вес не может быть отрицательным: " + part);
+            }
+            if (weight > 0) {
+                mix.put(pair[0].trim(), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("В mix нет ни одного эндпоинта с положительным весом");
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,61 @@
+package ru.hogwarts.school.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.util.FileSystemUtils;
+import ru.hogwarts.school.SchoolApplication;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Приложение с веб-сервером на случайном порту поверх отдельного встроенного PostgreSQL и временного каталога аватаров
+final class LoadTestContext implements AutoCloseable {
+    private final EmbeddedPostgres postgres;
+    private final Path avatarsDir;
+    private final ServletWebServerApplicationContext context;
+
+    private LoadTestContext(EmbeddedPostgres postgres, Path avatarsDir, ServletWebServerApplicationContext context) {
+        this.postgres = postgres;
+        this.avatarsDir = avatarsDir;
+        this.context = context;
+    }
+
+    static LoadTestContext start(LoadTestConfig config) throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        Path avatarsDir = Files.createTempDirectory("hogwarts-load-avatars");
+        ServletWebServerApplicationContext context = (ServletWebServerApplicationContext)
+                new SpringApplicationBuilder(SchoolApplication.class)
+                        // Аргументы командной строки, а не .properties(): у тех низший приоритет и application.properties их перекрывает
+                        .run(
+                                "--server.port=0",
+                                "--spring.threads.virtual.enabled=" + config.virtualThreads(),
+                                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                                "--spring.datasource.username=postgres",
+                                "--spring.datasource.password=postgres",
+                                "--spring.jpa.show-sql=false",
+                                "--logging.level.root=WARN",
+                                "--logging.level.org.hibernate.SQL=WARN",
+                                "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                                "--logging.level.org.springframework.web=WARN",
+                                "--logging.level.ru.hogwarts.school=WARN",
+                                "--avatars.dir.path=" + avatarsDir);
+        return new LoadTestContext(postgres, avatarsDir, context);
+    }
+
+    int port() {
+        return context.getWebServer().getPort();
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        postgres.close();
+        FileSystemUtils.deleteRecursively(avatarsDir);
+    }
+}
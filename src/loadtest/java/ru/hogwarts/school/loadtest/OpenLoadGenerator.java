@@ -0,0 +1,88 @@
+package ru.hogwarts.school.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Открытая модель: запросы приходят пуассоновским потоком с заданной интенсивностью независимо от того,
+// успевает ли сервер отвечать. Задержка считается от запланированного момента отправки, поэтому
+// отставание генератора и очередь на сервере попадают в перцентили, а не прячутся (coordinated omission).
+final class OpenLoadGenerator {
+    private final HttpClient client;
+    private final List<Endpoint> endpoints;
+    private final int totalWeight;
+    private final double ratePerNano;
+    private final Duration timeout;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final SplittableRandom random;
+
+    OpenLoadGenerator(HttpClient client, List<Endpoint> endpoints, LoadTestConfig config) {
+        this.client = client;
+        this.endpoints = endpoints;
+        this.totalWeight = endpoints.stream().mapToInt(Endpoint::weight).sum();
+        this.ratePerNano = config.rate() / TimeUnit.SECONDS.toNanos(1);
+        this.timeout = config.timeout();
+        this.maxInFlight = config.maxInFlight();
+        this.inFlight = new Semaphore(maxInFlight);
+        this.random = new SplittableRandom(config.seed());
+    }
+
+    // Возвращает фактическую длительность фазы вместе с дожиданием ответов
+    Duration run(Duration duration) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        double intended = start;
+        while (true) {
+            intended += -Math.log(1 - random.nextDouble()) / ratePerNano;
+            long scheduledAt = (long) intended;
+            if (scheduledAt >= end) {
+                break;
+            }
+            long wait = scheduledAt - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(pick(), scheduledAt);
+        }
+        // Дожидаемся ответов на всё отправленное, но не дольше таймаута запроса
+        if (inFlight.tryAcquire(maxInFlight, timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            inFlight.release(maxInFlight);
+        }
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    private Endpoint pick() {
+        int point = random.nextInt(totalWeight);
+        for (Endpoint endpoint : endpoints) {
+            point -= endpoint.weight();
+            if (point < 0) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException("Сумма весов не совпадает с totalWeight");
+    }
+
+    // Сверх лимита запрос не отправляется и считается отброшенным - генератор не должен сам стать узким местом
+    private void send(Endpoint endpoint, long scheduledAt) {
+        if (!inFlight.tryAcquire()) {
+            endpoint.recordDropped();
+            return;
+        }
+        client.sendAsync(endpoint.nextRequest(random), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    long latency = System.nanoTime() - scheduledAt;
+                    inFlight.release();
+                    if (error == null && response.statusCode() < 400) {
+                        endpoint.recordSuccess(latency);
+                    } else {
+                        endpoint.recordError();
+                    }
+                });
+    }
+}
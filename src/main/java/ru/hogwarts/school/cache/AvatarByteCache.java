@@ -0,0 +1,201 @@
+package ru.hogwarts.school.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.hogwarts.school.dto.AvatarCacheStatsDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Содержимое аватаров хранится вне heap: в direct-буферах (slab), нарезанных на страницы
+// фиксированного размера. Запись занимает набор страниц, поэтому фрагментации нет.
+// Вытеснение - LRU, допуск новых записей - TinyLFU (новая запись должна быть популярнее жертвы).
+@Component
+public class AvatarByteCache {
+    private static final int SLAB_SIZE = 4 * 1024 * 1024;
+    private static final int EXPECTED_ENTRY_SIZE = 32 * 1024;
+
+    private final int pageSize;
+    private final int pagesPerSlab;
+    private final int totalPages;
+    private final long maxEntrySize;
+    private final ByteBuffer[] slabs;
+    private final int[] freePages;
+    private int freeCount;
+    private int allocatedPages;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    public AvatarByteCache(@Value("${avatars.cache.capacity:64MB}") DataSize capacity,
+                           @Value("${avatars.cache.page-size:16KB}") DataSize pageSize) {
+        this.pageSize = Math.toIntExact(pageSize.toBytes());
+        this.pagesPerSlab = Math.max(1, SLAB_SIZE / this.pageSize);
+        this.totalPages = Math.toIntExact(capacity.toBytes() / this.pageSize);
+        this.maxEntrySize = capacity.toBytes() / 8;
+        this.slabs = new ByteBuffer[(totalPages + pagesPerSlab - 1) / pagesPerSlab];
+        this.freePages = new int[totalPages];
+        this.sketch = new FrequencySketch((int) Math.max(16, capacity.toBytes() / EXPECTED_ENTRY_SIZE));
+    }
+
+    // Возвращённая запись закреплена: её страницы не переиспользуются до close()
+    public synchronized Handle get(String key) {
+        sketch.increment(key);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        entry.refCount++;
+        return new Handle(entry);
+    }
+
+    public synchronized void put(String key, byte[] data) {
+        if (data.length > maxEntrySize || entries.containsKey(key)) {
+            return;
+        }
+        int needed = Math.max(1, (data.length + pageSize - 1) / pageSize);
+        int freeable = availablePages();
+        if (freeable < needed) {
+            // Жертвы выбираются в порядке LRU; читаемые прямо сейчас записи не трогаем
+            int candidateFrequency = sketch.frequency(key);
+            List<String> victims = new ArrayList<>();
+            for (Iterator<Map.Entry<String, Entry>> lru = entries.entrySet().iterator();
+                 freeable < needed && lru.hasNext(); ) {
+                Map.Entry<String, Entry> victim = lru.next();
+                if (victim.getValue().refCount > 1) {
+                    continue;
+                }
+                if (candidateFrequency <= sketch.frequency(victim.getKey())) {
+                    rejections.increment();
+                    return;
+                }
+                victims.add(victim.getKey());
+                freeable += victim.getValue().pages.length;
+            }
+            if (freeable < needed) {
+                rejections.increment();
+                return;
+            }
+            for (String victim : victims) {
+                release(entries.remove(victim));
+                evictions.increment();
+            }
+        }
+
+        int[] pages = new int[needed];
+        for (int i = 0; i < needed; i++) {
+            pages[i] = allocatePage();
+            int offset = i * pageSize;
+            page(pages[i]).put(data, offset, Math.min(pageSize, data.length - offset));
+        }
+        entries.put(key, new Entry(pages, data.length));
+    }
+
+    public synchronized AvatarCacheStatsDto getStats() {
+        long hitCount = hits.sum();
+        long requests = hitCount + misses.sum();
+        return new AvatarCacheStatsDto(
+                hitCount,
+                misses.sum(),
+                requests == 0 ? 0.0 : (double) hitCount / requests,
+                evictions.sum(),
+                rejections.sum(),
+                entries.size(),
+                (long) (totalPages - availablePages()) * pageSize,
+                (long) totalPages * pageSize
+        );
+    }
+
+    private int availablePages() {
+        return freeCount + (totalPages - allocatedPages);
+    }
+
+    private int allocatePage() {
+        if (freeCount > 0) {
+            return freePages[--freeCount];
+        }
+        int page = allocatedPages++;
+        int slab = page / pagesPerSlab;
+        if (slabs[slab] == null) {
+            int pagesInSlab = Math.min(pagesPerSlab, totalPages - slab * pagesPerSlab);
+            slabs[slab] = ByteBuffer.allocateDirect(pagesInSlab * pageSize);
+        }
+        return page;
+    }
+
+    private ByteBuffer page(int page) {
+        int offset = (page % pagesPerSlab) * pageSize;
+        return slabs[page / pagesPerSlab].duplicate().position(offset).limit(offset + pageSize).slice();
+    }
+
+    private void release(Entry entry) {
+        if (--entry.refCount == 0) {
+            for (int page : entry.pages) {
+                freePages[freeCount++] = page;
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final int[] pages;
+        private final int length;
+        private int refCount = 1;
+
+        private Entry(int[] pages, int length) {
+            this.pages = pages;
+            this.length = length;
+        }
+    }
+
+    public final class Handle implements AutoCloseable {
+        private final Entry entry;
+        private boolean closed;
+
+        private Handle(Entry entry) {
+            this.entry = entry;
+        }
+
+        public int length() {
+            return entry.length;
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
+            WritableByteChannel channel = Channels.newChannel(out);
+            int remaining = entry.length;
+            for (int page : entry.pages) {
+                ByteBuffer buffer = page(page).limit(Math.min(pageSize, remaining));
+                remaining -= buffer.remaining();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (AvatarByteCache.this) {
+                if (!closed) {
+                    closed = true;
+                    release(entry);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package ru.hogwarts.school.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.dto.DtoCacheStatsDto;
+import ru.hogwarts.school.dto.FacultyResponseDto;
+import ru.hogwarts.school.dto.StudentResponseDto;
+import ru.hogwarts.school.transaction.AfterCommit;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Кеш DTO студентов и факультетов. Загрузка идёт внутри Cache.get, поэтому инвалидация того же ключа
+// дожидается её окончания и не может быть перезаписана устаревшим значением.
+// Пакетная загрузка так не защищена, поэтому её результат сверяется со счётчиком инвалидаций (см. getAll).
+// Инвалидация выполняется после коммита: до него другие транзакции всё равно видят старые данные.
+@Component
+public class DtoCaches {
+    private final Cache<Long, StudentResponseDto> students;
+    private final Cache<Long, FacultyResponseDto> faculties;
+    // Увеличиваются перед каждой инвалидацией соответствующего кеша
+    private final AtomicLong studentEvictions = new AtomicLong();
+    private final AtomicLong facultyEvictions = new AtomicLong();
+
+    public DtoCaches(@Value("${caches.dto.ttl:PT10M}") Duration ttl,
+                     @Value("${caches.dto.students.maximum-size:10000}") long studentsMaximumSize,
+                     @Value("${caches.dto.faculties.maximum-weight:100000}") long facultiesMaximumWeight) {
+        this.students = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(studentsMaximumSize)
+                .recordStats()
+                .build();
+        // Вес факультета растёт со списком studentIds, чтобы крупные факультеты не раздували память
+        this.faculties = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumWeight(facultiesMaximumWeight)
+                .weigher((Long id, FacultyResponseDto faculty) -> 1 + faculty.studentIds().size())
+                .recordStats()
+                .build();
+    }
+
+    public StudentResponseDto getStudent(Long id, Function<Long, StudentResponseDto> loader) {
+        return students.get(id, loader);
+    }
+
+    public FacultyResponseDto getFaculty(Long id, Function<Long, FacultyResponseDto> loader) {
+        return faculties.get(id, loader);
+    }
+
+    // Отсутствующие в кеше студенты загружаются одним вызовом loader
+    public Map<Long, StudentResponseDto> getStudents(Collection<Long> ids,
+                                                     Function<Set<? extends Long>, Map<Long, StudentResponseDto>> loader) {
+        return getAll(students, studentEvictions, ids, loader);
+    }
+
+    // Отсутствующие в кеше факультеты загружаются одним вызовом loader
+    public Map<Long, FacultyResponseDto> getFaculties(Collection<Long> ids,
+                                                      Function<Set<? extends Long>, Map<Long, FacultyResponseDto>> loader) {
+        return getAll(faculties, facultyEvictions, ids, loader);
+    }
+
+    public void evictStudentAfterCommit(Long id) {
+        AfterCommit.run(() -> {
+            studentEvictions.incrementAndGet();
+            students.invalidate(id);
+        });
+    }
+
+    // null пропускается: у студента может не быть факультета
+    public void evictFacultiesAfterCommit(Collection<Long> ids) {
+        List<Long> keys = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (!keys.isEmpty()) {
+            AfterCommit.run(() -> {
+                facultyEvictions.incrementAndGet();
+                faculties.invalidateAll(keys);
+            });
+        }
+    }
+
+    public void evictStudentsOfFacultyAfterCommit(Long facultyId) {
+        AfterCommit.run(() -> {
+            studentEvictions.incrementAndGet();
+            students.asMap().values().removeIf(s -> facultyId.equals(s.facultyId()));
+        });
+    }
+
+    // Cache.getAll вызывает loader вне блокировок ключей и кладёт результат обычным put, так что инвалидация
+    // во время загрузки потерялась бы. Если она случилась, загруженное убирается из кеша: счётчик растёт
+    // до удаления, поэтому инвалидация либо увидит уже положенное значение, либо её заметит проверка ниже
+    private static <V> Map<Long, V> getAll(Cache<Long, V> cache, AtomicLong evictions, Collection<Long> ids,
+                                           Function<Set<? extends Long>, Map<Long, V>> loader) {
+        Map<Long, V> found = new HashMap<>(cache.getAllPresent(ids));
+        Set<Long> missing = ids.stream().filter(id -> !found.containsKey(id)).collect(Collectors.toSet());
+        if (missing.isEmpty()) {
+            return found;
+        }
+        long before = evictions.get();
+        Map<Long, V> loaded = loader.apply(missing);
+        loaded.forEach(cache.asMap()::putIfAbsent);
+        if (evictions.get() != before) {
+            cache.invalidateAll(loaded.keySet());
+        }
+        found.putAll(loaded);
+        return found;
+    }
+
+    public List<DtoCacheStatsDto> getStats() {
+        return List.of(stats("students", students), stats("faculties", faculties));
+    }
+
+    private static DtoCacheStatsDto stats(String name, Cache<Long, ?> cache) {
+        CacheStats stats = cache.stats();
+        return new DtoCacheStatsDto(name, stats.hitCount(), stats.missCount(), stats.hitRate(),
+                stats.evictionCount(), cache.estimatedSize());
+    }
+}
@@ -1,35 +1,58 @@
 package ru.hogwarts.school.controller;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
-import ru.hogwarts.school.model.Avatar;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.hogwarts.school.dto.AvatarCacheStatsDto;
+import ru.hogwarts.school.dto.AvatarFileDto;
+import ru.hogwarts.school.dto.AvatarJobDto;
+import ru.hogwarts.school.dto.AvatarResponseDto;
+import ru.hogwarts.school.dto.CursorPage;
+import ru.hogwarts.school.exceptions.InvalidPageRequestException;
 import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.service.AvatarUploadJobService;
 
 import java.io.IOException;
+import java.net.URI;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
 
 @RestController
 @RequestMapping("/avatars")
 public class AvatarController {
     private final AvatarService avatarService;
+    private final AvatarUploadJobService uploadJobService;
+    private final CacheControl cacheControl;
 
-    public AvatarController(AvatarService avatarService) {
+    public AvatarController(AvatarService avatarService,
+                            AvatarUploadJobService uploadJobService,
+                            @Value("${avatars.http.cache-max-age:PT1H}") Duration cacheMaxAge) {
         this.avatarService = avatarService;
+        this.uploadJobService = uploadJobService;
+        this.cacheControl = CacheControl.maxAge(cacheMaxAge).cachePublic();
     }
 
     @PostMapping(value = "/students/{studentId}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Avatar> uploadAvatar(
+    public ResponseEntity<AvatarResponseDto> uploadAvatar(
             @PathVariable Long studentId,
             @RequestParam("file") MultipartFile file) {
 
         try {
-            Avatar avatar = avatarService.uploadAvatar(studentId, file);
+            AvatarResponseDto avatar = avatarService.uploadAvatar(studentId, file);
             return ResponseEntity.status(HttpStatus.CREATED).body(avatar);
         } catch (ResponseStatusException e) {
             throw e;
@@ -41,16 +64,56 @@ public class AvatarController {
         }
     }
 
+    // Файл только сохраняется во временный каталог, обработка идёт в фоне; статус - по ссылке из Location
+    @PostMapping(value = "/students/{studentId}", params = "async=true", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<AvatarJobDto> uploadAvatarAsync(
+            @PathVariable Long studentId,
+            @RequestParam("file") MultipartFile file) {
+
+        try {
+            AvatarJobDto job = uploadJobService.submit(studentId, file);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/avatars/jobs/" + job.id()))
+                    .body(job);
+        } catch (IOException e) {
+            throw new ResponseStatusException(
+                    HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Ошибка загрузки файла: " + e.getMessage()
+            );
+        }
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<AvatarJobDto> getUploadJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(uploadJobService.getJob(jobId));
+    }
+
     @GetMapping(value = "/students/{studentId}/from-db", produces = MediaType.IMAGE_PNG_VALUE)
-    public ResponseEntity<byte[]> getAvatarDataFromDb(@PathVariable Long studentId) {
+    public ResponseEntity<StreamingResponseBody> getAvatarDataFromDb(@PathVariable Long studentId,
+                                                                     @RequestParam(required = false) Integer size,
+                                                                     WebRequest webRequest) {
         try {
-            Avatar avatar = avatarService.getAvatarByStudentId(studentId);
-            byte[] data = avatar.getData();
+            AvatarFileDto avatarFile = avatarService.getAvatarFile(studentId);
+            // 304 отдаётся по метаданным, содержимое аватара не читается
+            if (notModified(webRequest, avatarFile, size)) {
+                return null;
+            }
+            // Миниатюры хранятся только на диске рядом с оригиналом
+            if (size != null) {
+                Path variant = avatarService.getAvatarVariant(avatarFile, size);
+                return withValidators(ResponseEntity.ok(), avatarFile, size)
+                        .contentType(MediaType.valueOf(avatarFile.mediaType()))
+                        .contentLength(Files.size(variant))
+                        .header("Content-Disposition", "inline; filename=\"avatar.png\"")
+                        .body(out -> avatarService.writeFile(variant, out));
+            }
+            StreamingResponseBody body = out -> avatarService.writeAvatarData(avatarFile, out);
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.valueOf(avatar.getMediaType()))
+            return withValidators(ResponseEntity.ok(), avatarFile, null)
+                    .contentType(MediaType.valueOf(avatarFile.mediaType()))
+                    .contentLength(avatarFile.fileSize())
                     .header("Content-Disposition", "inline; filename=\"avatar.png\"")
-                    .body(data);
+                    .body(body);
 
         } catch (ResponseStatusException e) {
             throw new ResponseStatusException(
@@ -67,15 +130,26 @@ public class AvatarController {
     }
 
     @GetMapping(value = "/students/{studentId}/from-file", produces = MediaType.IMAGE_PNG_VALUE)
-    public ResponseEntity<byte[]> getAvatarDataFromFile(@PathVariable Long studentId) {
+    public ResponseEntity<Resource> getAvatarDataFromFile(@PathVariable Long studentId,
+                                                          @RequestParam(required = false) Integer size,
+                                                          WebRequest webRequest) {
         try {
-            Avatar avatar = avatarService.getAvatarByStudentId(studentId);
-            byte[] data = Files.readAllBytes(avatarService.getAvatarPath(studentId));
+            AvatarFileDto avatarFile = avatarService.getAvatarFile(studentId);
+            if (notModified(webRequest, avatarFile, size)) {
+                return null;
+            }
+            Path path = Paths.get(avatarFile.filePath());
+            if (!Files.isReadable(path)) {
+                throw new ResponseStatusException(
+                        HttpStatus.NOT_FOUND,
+                        "Файл аватарки не найден: " + path
+                );
+            }
+            if (size != null) {
+                path = avatarService.getAvatarVariant(avatarFile, size);
+            }
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.valueOf(avatar.getMediaType()))
-                    .header("Content-Disposition", "inline; filename=\"avatar.png\"")
-                    .body(data);
+            return fileResponse(path, avatarFile, size);
 
         } catch (ResponseStatusException e) {
             throw new ResponseStatusException(
@@ -83,11 +157,6 @@ public class AvatarController {
                     e.getReason(),
                     e
             );
-        } catch (IOException e) {
-            throw new ResponseStatusException(
-                    HttpStatus.NOT_FOUND,
-                    "Файл аватарки не найден: " + e.getMessage()
-            );
         } catch (Exception e) {
             throw new ResponseStatusException(
                     HttpStatus.INTERNAL_SERVER_ERROR,
@@ -96,10 +165,15 @@ public class AvatarController {
         }
     }
 
+    @GetMapping("/cache/stats")
+    public ResponseEntity<AvatarCacheStatsDto> getCacheStats() {
+        return ResponseEntity.ok(avatarService.getCacheStats());
+    }
+
     @GetMapping("/students/{studentId}")
-    public ResponseEntity<Avatar> getAvatarByStudentId(@PathVariable Long studentId) {
+    public ResponseEntity<AvatarResponseDto> getAvatarByStudentId(@PathVariable Long studentId) {
         try {
-            Avatar avatar = avatarService.getAvatarByStudentId(studentId);
+            AvatarResponseDto avatar = avatarService.getAvatarByStudentId(studentId);
             return ResponseEntity.ok(avatar);
         } catch (ResponseStatusException e) {
             throw e;
@@ -107,9 +181,9 @@ public class AvatarController {
     }
 
     @GetMapping("/{avatarId}")
-    public ResponseEntity<Avatar> getAvatarById(@PathVariable Long avatarId) {
+    public ResponseEntity<AvatarResponseDto> getAvatarById(@PathVariable Long avatarId) {
         try {
-            Avatar avatar = avatarService.getAvatarById(avatarId);
+            AvatarResponseDto avatar = avatarService.getAvatarById(avatarId);
             return ResponseEntity.ok(avatar);
         } catch (ResponseStatusException e) {
             throw e;
@@ -117,12 +191,16 @@ public class AvatarController {
     }
 
     @GetMapping
-    public ResponseEntity<Page<Avatar>> getAllAvatars(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+    public ResponseEntity<CursorPage<AvatarResponseDto>> getAllAvatars(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
         try {
-            Page<Avatar> avatars = avatarService.getAllAvatars(PageRequest.of(page, size));
+            CursorPage<AvatarResponseDto> avatars = avatarService.getAllAvatars(cursor, size, sort, withTotal);
             return ResponseEntity.ok(avatars);
+        } catch (InvalidPageRequestException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         } catch (Exception e) {
             throw new ResponseStatusException(
                     HttpStatus.INTERNAL_SERVER_ERROR,
@@ -131,13 +209,32 @@ public class AvatarController {
         }
     }
 
+    @GetMapping("/size-greater-than")
+    public ResponseEntity<CursorPage<AvatarResponseDto>> getAvatarsByFileSizeGreaterThan(
+            @RequestParam long min,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        if (min < 0) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Минимальный размер не может быть отрицательным"
+            );
+        }
+        try {
+            return ResponseEntity.ok(avatarService.getAvatarsByFileSizeGreaterThan(min, cursor, size, withTotal));
+        } catch (InvalidPageRequestException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     @PutMapping(value = "/students/{studentId}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Avatar> updateAvatar(
+    public ResponseEntity<AvatarResponseDto> updateAvatar(
             @PathVariable Long studentId,
             @RequestParam("file") MultipartFile file) {
 
         try {
-            Avatar updatedAvatar = avatarService.updateAvatar(studentId, file);
+            AvatarResponseDto updatedAvatar = avatarService.updateAvatar(studentId, file);
             return ResponseEntity.ok(updatedAvatar);
         } catch (ResponseStatusException e) {
             throw e;
@@ -172,6 +269,50 @@ public class AvatarController {
         }
     }
 
+    // Тело отдаётся потоком из файла, Range-запросы (206) обрабатывает Spring MVC
+    private ResponseEntity<Resource> fileResponse(Path path, AvatarFileDto avatarFile, Integer size) {
+        return withValidators(ResponseEntity.ok(), avatarFile, size)
+                .contentType(MediaType.valueOf(avatarFile.mediaType()))
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header("Content-Disposition", "inline; filename=\"avatar.png\"")
+                .body(new FileSystemResource(path));
+    }
+
+    private boolean notModified(WebRequest webRequest, AvatarFileDto avatarFile, Integer size) {
+        if (!webRequest.checkNotModified(eTag(avatarFile, size), lastModified(avatarFile))) {
+            return false;
+        }
+        if (webRequest instanceof ServletWebRequest servletWebRequest && servletWebRequest.getResponse() != null) {
+            servletWebRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        }
+        return true;
+    }
+
+    private ResponseEntity.BodyBuilder withValidators(ResponseEntity.BodyBuilder builder,
+                                                      AvatarFileDto avatarFile, Integer size) {
+        builder.eTag(eTag(avatarFile, size)).cacheControl(cacheControl);
+        long lastModified = lastModified(avatarFile);
+        if (lastModified >= 0) {
+            builder.lastModified(lastModified);
+        }
+        return builder;
+    }
+
+    // ETag строится по хешу содержимого, поэтому одинаковые аватары кешируются одинаково
+    private static String eTag(AvatarFileDto avatarFile, Integer size) {
+        return "\"" + avatarFile.checksum() + (size != null ? "-" + size : "") + "\"";
+    }
+
+    // Дата в HTTP с точностью до секунды: пока с изменения не прошла секунда, следующее обновление
+    // получило бы ту же дату и If-Modified-Since дал бы ложный 304. До тех пор проверка только по ETag
+    private static long lastModified(AvatarFileDto avatarFile) {
+        Instant updatedAt = avatarFile.updatedAt();
+        if (updatedAt == null || updatedAt.isAfter(Instant.now().minusSeconds(1))) {
+            return -1;
+        }
+        return updatedAt.toEpochMilli();
+    }
+
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity<String> handleResponseStatusException(ResponseStatusException ex) {
         return ResponseEntity.status(ex.getStatusCode())
@@ -0,0 +1,25 @@
+package ru.hogwarts.school.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.hogwarts.school.cache.DtoCaches;
+import ru.hogwarts.school.dto.DtoCacheStatsDto;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/caches")
+public class CacheController {
+    private final DtoCaches caches;
+
+    public CacheController(DtoCaches caches) {
+        this.caches = caches;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<List<DtoCacheStatsDto>> getStats() {
+        return ResponseEntity.ok(caches.getStats());
+    }
+}
@@ -0,0 +1,44 @@
+package ru.hogwarts.school.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.hogwarts.school.dto.ChangeEntity;
+import ru.hogwarts.school.feed.ChangeFeed;
+
+import java.util.Set;
+
+@RestController
+@RequestMapping("/changes")
+public class ChangeFeedController {
+    private final ChangeFeed changeFeed;
+
+    public ChangeFeedController(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    // EventSource сам присылает Last-Event-ID при переподключении; параметр - для первого подключения с сохранённым id
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+                                @RequestParam(value = "lastEventId", required = false) String lastEventIdParam,
+                                @RequestParam(value = "entity", required = false) Set<ChangeEntity> entities) {
+        String lastEventId = lastEventIdHeader != null ? lastEventIdHeader : lastEventIdParam;
+        return changeFeed.subscribe(parseEventId(lastEventId), entities != null ? entities : Set.of());
+    }
+
+    private static Long parseEventId(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Некорректный Last-Event-ID: " + value
+            );
+        }
+    }
+}
@@ -1,12 +1,20 @@
 package ru.hogwarts.school.controller;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.hogwarts.school.dto.CursorPage;
 import ru.hogwarts.school.dto.FacultyRequestDto;
 import ru.hogwarts.school.dto.FacultyResponseDto;
+import ru.hogwarts.school.dto.FacultyStatsDto;
 import ru.hogwarts.school.dto.StudentResponseDto;
+import ru.hogwarts.school.export.ExportFormat;
+import ru.hogwarts.school.export.ExportResponses;
+import ru.hogwarts.school.service.ExportService;
 import ru.hogwarts.school.service.FacultyService;
+import ru.hogwarts.school.service.FacultyStatsService;
 
 import java.util.List;
 
@@ -14,9 +22,23 @@ import java.util.List;
 @RequestMapping("/faculties")
 public class FacultyController {
     private final FacultyService service;
+    private final ExportService exportService;
+    private final FacultyStatsService statsService;
 
-    public FacultyController(FacultyService service) {
+    public FacultyController(FacultyService service, ExportService exportService, FacultyStatsService statsService) {
         this.service = service;
+        this.exportService = exportService;
+        this.statsService = statsService;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<List<FacultyStatsDto>> getStats() {
+        return ResponseEntity.ok(statsService.getAll());
+    }
+
+    @PostMapping("/stats/rebuild")
+    public ResponseEntity<List<FacultyStatsDto>> rebuildStats() {
+        return ResponseEntity.ok(statsService.rebuild());
     }
 
     @PostMapping
@@ -41,8 +63,12 @@ public class FacultyController {
     }
 
     @GetMapping
-    public ResponseEntity<List<FacultyResponseDto>> getAll() {
-        return ResponseEntity.ok(service.getAll());
+    public ResponseEntity<CursorPage<FacultyResponseDto>> getAll(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(service.getAll(cursor, size, sort, withTotal));
     }
 
     @GetMapping("/filter")
@@ -54,4 +80,22 @@ public class FacultyController {
     public ResponseEntity<List<StudentResponseDto>> getStudents(@PathVariable Long id) {
         return ResponseEntity.ok(service.getStudentsByFacultyId(id));
     }
-}
\ No newline at end of file
+
+    @GetMapping(value = "/{id}/students", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamStudents(@PathVariable Long id) {
+        // 404 должен уйти до того, как начнётся запись тела
+        service.checkExists(id);
+        StreamingResponseBody body = out -> exportService.exportFacultyStudents(id, ExportFormat.NDJSON, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "csv") String format,
+                                                        @RequestParam(defaultValue = "false") boolean gzip) {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        return ExportResponses.attachment("faculties", exportFormat, gzip,
+                out -> exportService.exportFaculties(exportFormat, out));
+    }
+}
@@ -3,10 +3,13 @@ package ru.hogwarts.school.controller;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.hogwarts.school.exceptions.FacultyNotFoundException;
+import ru.hogwarts.school.exceptions.InvalidPageRequestException;
 import ru.hogwarts.school.exceptions.StudentNotFoundException;
+import ru.hogwarts.school.exceptions.UnsupportedExportFormatException;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
@@ -22,4 +25,26 @@ public class GlobalExceptionHandler {
     public ResponseEntity<String> handleStudentNotFound(StudentNotFoundException ex) {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(InvalidPageRequestException.class)
+    public ResponseEntity<String> handleInvalidPageRequest(InvalidPageRequestException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .contentType(MediaType.valueOf("text/plain;charset=UTF-8"))
+                .body(ex.getMessage());
+    }
+
+    @ExceptionHandler(UnsupportedExportFormatException.class)
+    public ResponseEntity<String> handleUnsupportedExportFormat(UnsupportedExportFormatException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .contentType(MediaType.valueOf("text/plain;charset=UTF-8"))
+                .body(ex.getMessage());
+    }
+
+    // Запись успели изменить параллельно: клиент перечитывает её и повторяет запрос
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .contentType(MediaType.valueOf("text/plain;charset=UTF-8"))
+                .body("Запись была изменена другим запросом, повторите с актуальными данными");
+    }
+}
@@ -1,23 +1,38 @@
 package ru.hogwarts.school.controller;
 
-import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.hogwarts.school.dto.CursorPage;
 import ru.hogwarts.school.dto.FacultyResponseDto;
+import ru.hogwarts.school.dto.StudentImportReportDto;
+import ru.hogwarts.school.dto.StudentNameDto;
 import ru.hogwarts.school.dto.StudentRequestDto;
 import ru.hogwarts.school.dto.StudentResponseDto;
+import ru.hogwarts.school.dto.StudentStatsDto;
+import ru.hogwarts.school.export.ExportFormat;
+import ru.hogwarts.school.export.ExportResponses;
+import ru.hogwarts.school.service.ExportService;
+import ru.hogwarts.school.service.StudentImportService;
 import ru.hogwarts.school.service.StudentService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
 @RequestMapping("/students")
 public class StudentController {
     private final StudentService service;
+    private final StudentImportService importService;
+    private final ExportService exportService;
 
-    public StudentController(StudentService service) {
+    public StudentController(StudentService service, StudentImportService importService, ExportService exportService) {
         this.service = service;
+        this.importService = importService;
+        this.exportService = exportService;
     }
 
     @PostMapping
@@ -25,6 +40,36 @@ public class StudentController {
         return ResponseEntity.status(HttpStatus.CREATED).body(service.create(dto));
     }
 
+    // Тело не буферизуется целиком: строки читаются из потока запроса по мере записи в БД
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<StudentImportReportDto> importCsv(InputStream body) throws IOException {
+        return ResponseEntity.ok(importService.importCsv(body));
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StudentImportReportDto> importNdjson(InputStream body) throws IOException {
+        return ResponseEntity.ok(importService.importNdjson(body));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "csv") String format,
+                                                        @RequestParam(defaultValue = "false") boolean gzip) {
+        ExportFormat exportFormat = ExportFormat.of(format);
+        return ExportResponses.attachment("students", exportFormat, gzip,
+                out -> exportService.exportStudents(exportFormat, out));
+    }
+
+    @GetMapping("/search/prefix")
+    public ResponseEntity<List<StudentNameDto>> searchByPrefix(@RequestParam String q,
+                                                               @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(service.searchByPrefix(q, limit));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<StudentStatsDto> getStats() {
+        return ResponseEntity.ok(service.getStats());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<StudentResponseDto> read(@PathVariable Long id) {
         return ResponseEntity.ok(service.read(id));
@@ -42,17 +87,26 @@ public class StudentController {
     }
 
     @GetMapping
-    public ResponseEntity<Page<StudentResponseDto>> getAll(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        return ResponseEntity.ok(service.getAll(page, size));
+    public ResponseEntity<CursorPage<StudentResponseDto>> getAll(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        return ResponseEntity.ok(service.getAll(cursor, size, sort, withTotal));
     }
 
     @GetMapping("/age-between")
-    public ResponseEntity<List<StudentResponseDto>> findByAgeBetween(
+    public ResponseEntity<CursorPage<StudentResponseDto>> findByAgeBetween(
             @RequestParam int min,
-            @RequestParam int max) {
-        return ResponseEntity.ok(service.findByAgeBetween(min, max));
+            @RequestParam int max,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(service.findByAgeBetween(min, max, cursor, size));
+    }
+
+    @GetMapping("/age-between/count")
+    public ResponseEntity<Long> countByAgeBetween(@RequestParam int min, @RequestParam int max) {
+        return ResponseEntity.ok(service.countByAgeBetween(min, max));
     }
 
     @GetMapping("/{id}/faculty")
@@ -0,0 +1,4 @@
+package ru.hogwarts.school.dto;
+
+public record AgeCountDto(int age, long count) {
+}
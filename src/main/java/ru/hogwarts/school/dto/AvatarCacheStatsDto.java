@@ -0,0 +1,5 @@
+package ru.hogwarts.school.dto;
+
+public record AvatarCacheStatsDto(long hits, long misses, double hitRatio, long evictions, long rejections,
+                                  int entries, long usedBytes, long capacityBytes) {
+}
@@ -0,0 +1,7 @@
+package ru.hogwarts.school.dto;
+
+import java.time.Instant;
+
+public record AvatarFileDto(Long id, Long studentId, String filePath, long fileSize, String mediaType,
+                            String checksum, Instant updatedAt) {
+}
@@ -0,0 +1,8 @@
+package ru.hogwarts.school.dto;
+
+import java.time.Instant;
+
+// avatar заполнен после DONE; errorStatus и error - после FAILED
+public record AvatarJobDto(String id, Long studentId, AvatarJobStatus status, AvatarResponseDto avatar,
+                           Integer errorStatus, String error, Instant createdAt, Instant updatedAt) {
+}
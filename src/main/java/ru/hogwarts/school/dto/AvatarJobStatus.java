@@ -0,0 +1,9 @@
+package ru.hogwarts.school.dto;
+
+public enum AvatarJobStatus {
+    QUEUED,
+    VALIDATING,
+    STORING,
+    DONE,
+    FAILED
+}
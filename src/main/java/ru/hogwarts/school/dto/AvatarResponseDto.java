@@ -0,0 +1,4 @@
+package ru.hogwarts.school.dto;
+
+public record AvatarResponseDto(Long id, Long studentId, long fileSize, String mediaType, Long version) {
+}
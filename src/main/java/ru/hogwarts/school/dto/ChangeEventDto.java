@@ -0,0 +1,5 @@
+package ru.hogwarts.school.dto;
+
+// entityId у аватара - id студента, как в путях /avatars/students/{studentId}; version у DELETED не передаётся
+public record ChangeEventDto(long id, ChangeEntity entity, Long entityId, Long version, ChangeOperation operation) {
+}
@@ -0,0 +1,6 @@
+package ru.hogwarts.school.dto;
+
+import java.util.List;
+
+public record CursorPage<T>(List<T> content, String nextCursor, Long totalElements) {
+}
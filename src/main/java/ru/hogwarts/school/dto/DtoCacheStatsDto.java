@@ -0,0 +1,4 @@
+package ru.hogwarts.school.dto;
+
+public record DtoCacheStatsDto(String name, long hits, long misses, double hitRatio, long evictions, long size) {
+}
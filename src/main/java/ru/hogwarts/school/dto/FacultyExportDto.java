@@ -0,0 +1,4 @@
+package ru.hogwarts.school.dto;
+
+public record FacultyExportDto(Long id, String name, String color) {
+}
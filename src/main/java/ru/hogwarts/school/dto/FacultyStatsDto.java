@@ -0,0 +1,9 @@
+package ru.hogwarts.school.dto;
+
+public record FacultyStatsDto(Long facultyId, String name, long studentCount, Double averageAge,
+                              Integer minAge, Integer maxAge) {
+
+    public FacultyStatsDto(Long facultyId, String name, long studentCount, long ageSum, Integer minAge, Integer maxAge) {
+        this(facultyId, name, studentCount, studentCount > 0 ? (double) ageSum / studentCount : null, minAge, maxAge);
+    }
+}
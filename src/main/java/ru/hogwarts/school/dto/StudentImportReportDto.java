@@ -0,0 +1,6 @@
+package ru.hogwarts.school.dto;
+
+import java.util.List;
+
+public record StudentImportReportDto(long total, long imported, long failed, List<StudentImportErrorDto> errors) {
+}
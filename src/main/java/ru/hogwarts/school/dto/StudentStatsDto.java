@@ -0,0 +1,8 @@
+package ru.hogwarts.school.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public record StudentStatsDto(long count, Double averageAge, Map<Integer, Long> ageHistogram, long outOfRangeAges,
+                              List<StudentResponseDto> lastStudents) {
+}
@@ -0,0 +1,7 @@
+package ru.hogwarts.school.exceptions;
+
+public class InvalidPageRequestException extends RuntimeException {
+    public InvalidPageRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.hogwarts.school.exceptions;
+
+public class UnsupportedExportFormatException extends RuntimeException {
+    public UnsupportedExportFormatException(String format) {
+        super("Неподдерживаемый формат выгрузки: " + format + ". Доступны: csv, ndjson");
+    }
+}
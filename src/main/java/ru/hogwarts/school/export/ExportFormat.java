@@ -0,0 +1,34 @@
+package ru.hogwarts.school.export;
+
+import org.springframework.http.MediaType;
+import ru.hogwarts.school.exceptions.UnsupportedExportFormatException;
+
+public enum ExportFormat {
+    CSV(MediaType.valueOf("text/csv;charset=UTF-8"), "csv"),
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ExportFormat of(String value) {
+        for (ExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new UnsupportedExportFormatException(value);
+    }
+}
@@ -0,0 +1,31 @@
+package ru.hogwarts.school.export;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.zip.GZIPOutputStream;
+
+public final class ExportResponses {
+    private static final MediaType GZIP = MediaType.valueOf("application/gzip");
+
+    private ExportResponses() {
+    }
+
+    // syncFlush нужен, чтобы сброс буфера RowWriter доходил до клиента и через gzip
+    public static ResponseEntity<StreamingResponseBody> attachment(String baseName, ExportFormat format,
+                                                                   boolean gzip, StreamingResponseBody body) {
+        String fileName = baseName + "." + format.getExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody content = !gzip ? body : out -> {
+            GZIPOutputStream compressed = new GZIPOutputStream(out, 8192, true);
+            body.writeTo(compressed);
+            compressed.finish();
+        };
+        return ResponseEntity.ok()
+                .contentType(gzip ? GZIP : format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(content);
+    }
+}
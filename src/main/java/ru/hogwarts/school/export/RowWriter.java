@@ -0,0 +1,78 @@
+package ru.hogwarts.school.export;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Пишет строки по мере поступления: первая уходит клиенту сразу, дальше буфер сбрасывается пачками
+public class RowWriter<T> {
+    static final int FLUSH_EVERY = 500;
+
+    private final OutputStream out;
+    private final ExportFormat format;
+    private final ObjectWriter jsonWriter;
+    private final List<String> header;
+    private final Function<T, List<?>> columns;
+    private long written;
+
+    public RowWriter(OutputStream out, ExportFormat format, ObjectWriter jsonWriter,
+                     List<String> header, Function<T, List<?>> columns) {
+        this.out = new BufferedOutputStream(out);
+        this.format = format;
+        this.jsonWriter = jsonWriter;
+        this.header = header;
+        this.columns = columns;
+    }
+
+    public void writeAll(Stream<T> rows) throws IOException {
+        if (format == ExportFormat.CSV) {
+            writeLine(csvLine(header));
+        }
+        Iterator<T> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            write(iterator.next());
+        }
+        out.flush();
+    }
+
+    private void write(T row) throws IOException {
+        if (format == ExportFormat.CSV) {
+            writeLine(csvLine(columns.apply(row)));
+        } else {
+            out.write(jsonWriter.writeValueAsBytes(row));
+            out.write('\n');
+        }
+        if (++written % FLUSH_EVERY == 1) {
+            out.flush();
+        }
+    }
+
+    private void writeLine(String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+    }
+
+    static String csvLine(List<?> values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            Object value = values.get(i);
+            String text = value == null ? "" : value.toString();
+            if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                line.append('"').append(text.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(text);
+            }
+        }
+        return line.toString();
+    }
+}
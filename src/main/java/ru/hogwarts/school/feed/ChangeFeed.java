@@ -0,0 +1,255 @@
+package ru.hogwarts.school.feed;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.hogwarts.school.dto.ChangeEntity;
+import ru.hogwarts.school.dto.ChangeEventDto;
+import ru.hogwarts.school.dto.ChangeOperation;
+import ru.hogwarts.school.transaction.AfterCommit;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Лента изменений для клиентских кешей: ограниченный журнал последних событий и подписчики SSE.
+// У каждого подписчика свой последовательный отправитель: порядок событий сохраняется, а медленный клиент
+// задерживает только себя. Отправку, зависшую дольше send-timeout, сторожевая задача обрывает и отключает клиента.
+// Если нужных событий в журнале уже нет, подписчик получает reset и должен перечитать данные целиком.
+@Component
+public class ChangeFeed {
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeed.class);
+
+    private final int capacity;
+    private final long emitterTimeoutMillis;
+    private final long sendTimeoutNanos;
+    private final ChangeEventDto[] ring;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService dispatcher;
+    // Платформенные потоки: SseEmitter.send синхронизирован, и зависшая запись закрепила бы несущий поток виртуального
+    private final ExecutorService senders;
+    private long lastId;
+    private int size;
+
+    public ChangeFeed(@Value("${changes.log-capacity:10000}") int capacity,
+                      @Value("${changes.emitter-timeout:PT30M}") Duration emitterTimeout,
+                      @Value("${changes.heartbeat-interval:PT15S}") Duration heartbeatInterval,
+                      @Value("${changes.send-timeout:PT10S}") Duration sendTimeout) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Ёмкость журнала изменений должна быть положительной");
+        }
+        this.capacity = capacity;
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.ring = new ChangeEventDto[capacity];
+        // Номера растут и между перезапусками: Last-Event-ID прошлого запуска окажется старше журнала и даст reset
+        this.lastId = System.currentTimeMillis() * 1000;
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.senders = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "change-feed-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long heartbeat = heartbeatInterval.toMillis();
+        dispatcher.scheduleWithFixedDelay(this::heartbeat, heartbeat, heartbeat, TimeUnit.MILLISECONDS);
+        long check = Math.max(sendTimeout.toMillis() / 2, 1);
+        dispatcher.scheduleWithFixedDelay(this::dropStalled, check, check, TimeUnit.MILLISECONDS);
+    }
+
+    public void publishAfterCommit(ChangeEntity entity, Long entityId, Long version, ChangeOperation operation) {
+        AfterCommit.run(() -> publish(entity, List.of(entityId), version, operation));
+    }
+
+    // Для уже закоммиченных изменений, например пачки импорта
+    public void publish(ChangeEntity entity, Collection<Long> entityIds, Long version, ChangeOperation operation) {
+        synchronized (this) {
+            for (Long entityId : entityIds) {
+                lastId++;
+                ring[slot(lastId)] = new ChangeEventDto(lastId, entity, entityId, version, operation);
+                size = Math.min(size + 1, capacity);
+            }
+        }
+        subscribers.forEach(this::signal);
+    }
+
+    // Без lastEventId клиент начинает с reset: текущее состояние он всё равно загружает сам
+    public SseEmitter subscribe(Long lastEventId, Set<ChangeEntity> entities) {
+        return subscribe(new SseEmitter(emitterTimeoutMillis), lastEventId, entities);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Long lastEventId, Set<ChangeEntity> entities) {
+        Subscriber subscriber = new Subscriber(emitter, Set.copyOf(entities),
+                lastEventId != null ? lastEventId : Long.MIN_VALUE);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        signal(subscriber);
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            // Зависшего на записи клиента не ждём: соединение закроет сам контейнер
+            if (subscriber.sendingSince == 0) {
+                subscriber.emitter.complete();
+            }
+        }
+        subscribers.clear();
+    }
+
+    synchronized Replay eventsAfter(long eventId) {
+        long oldest = lastId - size + 1;
+        if (eventId > lastId || eventId < oldest - 1) {
+            return new Replay(true, lastId, List.of());
+        }
+        List<ChangeEventDto> events = new ArrayList<>((int) (lastId - eventId));
+        for (long id = eventId + 1; id <= lastId; id++) {
+            events.add(ring[slot(id)]);
+        }
+        return new Replay(false, lastId, events);
+    }
+
+    private int slot(long eventId) {
+        return (int) Math.floorMod(eventId, (long) capacity);
+    }
+
+    // Не больше одного прохода на подписчика одновременно: сигнал во время отправки лишь требует ещё одного круга
+    private void signal(Subscriber subscriber) {
+        if (subscriber.pending.getAndIncrement() == 0) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.pending.set(0);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        int missed = 1;
+        do {
+            if (subscriber.closed) {
+                return;
+            }
+            try {
+                sendPending(subscriber);
+            } catch (IOException | IllegalStateException e) {
+                drop(subscriber, e);
+                return;
+            }
+            missed = subscriber.pending.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void sendPending(Subscriber subscriber) throws IOException {
+        Replay replay = eventsAfter(subscriber.lastSentId);
+        if (replay.reset()) {
+            subscriber.send(SseEmitter.event()
+                    .id(String.valueOf(replay.lastId()))
+                    .name("reset")
+                    .data(""));
+            subscriber.lastSentId = replay.lastId();
+        } else {
+            for (ChangeEventDto event : replay.events()) {
+                if (subscriber.accepts(event)) {
+                    subscriber.send(SseEmitter.event()
+                            .id(String.valueOf(event.id()))
+                            .name("change")
+                            .data(event, MediaType.APPLICATION_JSON));
+                }
+                subscriber.lastSentId = event.id();
+            }
+        }
+        if (subscriber.pingRequested.getAndSet(false)) {
+            subscriber.send(SseEmitter.event().comment("ping"));
+        }
+    }
+
+    // Комментарий SSE не даёт прокси закрыть простаивающее соединение и выявляет отключившихся клиентов
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.pingRequested.set(true);
+            signal(subscriber);
+        }
+    }
+
+    private void dropStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long since = subscriber.sendingSince;
+            if (since != 0 && now - since > sendTimeoutNanos) {
+                drop(subscriber, new IOException("Клиент не принимает события дольше допустимого"));
+            }
+        }
+    }
+
+    private void drop(Subscriber subscriber, Exception cause) {
+        if (subscriber.closed) {
+            return;
+        }
+        subscriber.closed = true;
+        log.debug("Подписчик ленты изменений отключён: {}", cause.getMessage());
+        subscribers.remove(subscriber);
+        // Эмиттер заблокирован, пока идёт зависшая запись, поэтому закрываем его не из потока сторожа
+        try {
+            senders.execute(() -> subscriber.emitter.completeWithError(cause));
+        } catch (RejectedExecutionException e) {
+            log.debug("Лента изменений остановлена, подписчик не закрыт явно");
+        }
+    }
+
+    record Replay(boolean reset, long lastId, List<ChangeEventDto> events) {
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<ChangeEntity> entities;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean pingRequested = new AtomicBoolean();
+        // Читается и пишется только текущим проходом отправителя этого подписчика
+        private long lastSentId;
+        // Момент начала текущей записи по System.nanoTime, 0 - запись не идёт
+        private volatile long sendingSince;
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter, Set<ChangeEntity> entities, long lastSentId) {
+            this.emitter = emitter;
+            this.entities = entities;
+            this.lastSentId = lastSentId;
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            sendingSince = System.nanoTime();
+            try {
+                emitter.send(event);
+            } finally {
+                sendingSince = 0;
+            }
+        }
+
+        private boolean accepts(ChangeEventDto event) {
+            return entities.isEmpty() || entities.contains(event.entity());
+        }
+    }
+}
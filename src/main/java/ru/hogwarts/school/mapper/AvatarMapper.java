@@ -0,0 +1,18 @@
+package ru.hogwarts.school.mapper;
+
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.dto.AvatarResponseDto;
+import ru.hogwarts.school.model.Avatar;
+
+@Component
+public class AvatarMapper {
+    public AvatarResponseDto toDto(Avatar avatar) {
+        return new AvatarResponseDto(
+                avatar.getId(),
+                avatar.getStudent() != null ? avatar.getStudent().getId() : null,
+                avatar.getFileSize(),
+                avatar.getMediaType(),
+                avatar.getVersion()
+        );
+    }
+}
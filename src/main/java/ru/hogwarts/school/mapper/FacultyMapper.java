@@ -4,9 +4,8 @@ import org.springframework.stereotype.Component;
 import ru.hogwarts.school.dto.FacultyRequestDto;
 import ru.hogwarts.school.dto.FacultyResponseDto;
 import ru.hogwarts.school.model.Faculty;
-import ru.hogwarts.school.model.Student;
 
-import java.util.stream.Collectors;
+import java.util.List;
 
 @Component
 public class FacultyMapper {
@@ -17,14 +16,13 @@ public class FacultyMapper {
         return faculty;
     }
 
-    public FacultyResponseDto toDto(Faculty faculty) {
+    // studentIds передаются снаружи: обход faculty.getStudents() давал запрос на каждый факультет
+    public FacultyResponseDto toDto(Faculty faculty, List<Long> studentIds) {
         return new FacultyResponseDto(
                 faculty.getId(),
                 faculty.getName(),
                 faculty.getColor(),
-                faculty.getStudents().stream()
-                        .map(Student::getId)
-                        .collect(Collectors.toList())
+                studentIds
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package ru.hogwarts.school.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Объём и время чтения/записи содержимого аватаров; source - откуда пришли байты: disk, db или cache.
+// Для фоновых загрузок - глубина очереди, занятые воркеры и итоги задач
+@Component
+public class AvatarMetrics {
+    private final MeterRegistry registry;
+    private final Counter bytesWritten;
+    private final Timer diskWrite;
+
+    public AvatarMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.bytesWritten = Counter.builder("avatar.bytes.written")
+                .baseUnit("bytes")
+                .tag("target", "disk")
+                .register(registry);
+        this.diskWrite = ioTimer("write", "disk");
+    }
+
+    public void recordWrite(long bytes, long nanos) {
+        bytesWritten.increment(bytes);
+        diskWrite.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRead(String source, long bytes, long nanos) {
+        Counter.builder("avatar.bytes.read")
+                .baseUnit("bytes")
+                .tag("source", source)
+                .register(registry)
+                .increment(bytes);
+        ioTimer("read", source).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // executor.queued, executor.active, executor.pool.size и др. с тегом name=avatar.uploads
+    public void monitorUploads(ExecutorService executor) {
+        new ExecutorServiceMetrics(executor, "avatar.uploads", List.of()).bindTo(registry);
+    }
+
+    public void recordUploadJob(String outcome) {
+        Counter.builder("avatar.upload.jobs")
+                .description("Фоновые загрузки аватаров по итогу: done, failed, rejected")
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    private Timer ioTimer(String operation, String source) {
+        return Timer.builder("avatar.io")
+                .description("Время чтения и записи содержимого аватаров")
+                .tags("operation", operation, "source", source)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,64 @@
+package ru.hogwarts.school.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+
+// Число SQL-запросов и загруженных сущностей на один HTTP-запрос, с теми же тегами method/uri, что у http.server.requests.
+// Учитывается только поток запроса: работа, продолженная асинхронно (стриминг ответа), сюда не попадает.
+@Component
+public class HibernateRequestMetricsFilter extends OncePerRequestFilter implements HibernatePropertiesCustomizer {
+    private final RequestQueryCounter counter = new RequestQueryCounter();
+    private final MeterRegistry registry;
+
+    public HibernateRequestMetricsFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, counter);
+        hibernateProperties.put(AvailableSettings.INTERCEPTOR, counter);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        counter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestQueryCounter.Counts counts = counter.stop();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+            summary("hibernate.request.statements", "SQL-запросы за HTTP-запрос", request.getMethod(), uri)
+                    .record(counts.statements());
+            summary("hibernate.request.entity.loads", "Загруженные сущности за HTTP-запрос", request.getMethod(), uri)
+                    .record(counts.entityLoads());
+        }
+    }
+
+    private DistributionSummary summary(String name, String description, String method, String uri) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tags("method", method, "uri", uri)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
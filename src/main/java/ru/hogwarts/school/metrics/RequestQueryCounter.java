@@ -0,0 +1,51 @@
+package ru.hogwarts.school.metrics;
+
+import org.hibernate.Interceptor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.type.Type;
+
+// Считает SQL-запросы и загрузки сущностей, сделанные в текущем потоке между start и stop
+public class RequestQueryCounter implements StatementInspector, Interceptor {
+    private static final ThreadLocal<Counts> COUNTS = new ThreadLocal<>();
+
+    public void start() {
+        COUNTS.set(new Counts());
+    }
+
+    public Counts stop() {
+        Counts counts = COUNTS.get();
+        COUNTS.remove();
+        return counts != null ? counts : new Counts();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Counts counts = COUNTS.get();
+        if (counts != null) {
+            counts.statements++;
+        }
+        return sql;
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        Counts counts = COUNTS.get();
+        if (counts != null) {
+            counts.entityLoads++;
+        }
+        return false;
+    }
+
+    public static final class Counts {
+        private long statements;
+        private long entityLoads;
+
+        public long statements() {
+            return statements;
+        }
+
+        public long entityLoads() {
+            return entityLoads;
+        }
+    }
+}
@@ -1,14 +1,13 @@
 package ru.hogwarts.school.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
-import org.hibernate.annotations.JdbcTypeCode;
-import org.hibernate.type.SqlTypes;
 
-import java.util.Arrays;
+import java.time.Instant;
 import java.util.Objects;
 
 @Entity
-@Table(name = "avatars")
+@Table(name = "avatars", indexes = @Index(name = "idx_avatars_file_size", columnList = "file_size"))
 public class Avatar {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -23,11 +22,18 @@ public class Avatar {
     @Column(name = "media_type", nullable = false)
     private String mediaType;
 
-    @Lob
-    @Basic(fetch = FetchType.LAZY)
-    @Column(nullable = false)
-    @JdbcTypeCode(SqlTypes.BINARY)
-    private byte[] data;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "blob_hash", nullable = false)
+    @JsonIgnore
+    private AvatarBlob blob;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    // Значение по умолчанию нужно для строк, созданных до появления версии
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint not null default 0")
+    private Long version;
 
     @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "student_id", unique = true, nullable = false)
@@ -36,11 +42,11 @@ public class Avatar {
     public Avatar() {
     }
 
-    public Avatar(String filePath, long fileSize, String mediaType, byte[] data, Student student) {
+    public Avatar(String filePath, long fileSize, String mediaType, AvatarBlob blob, Student student) {
         this.filePath = filePath;
         this.fileSize = fileSize;
         this.mediaType = mediaType;
-        this.data = data;
+        this.blob = blob;
         this.student = student;
     }
 
@@ -76,12 +82,28 @@ public class Avatar {
         this.mediaType = mediaType;
     }
 
-    public byte[] getData() {
-        return data;
+    public AvatarBlob getBlob() {
+        return blob;
+    }
+
+    public void setBlob(AvatarBlob blob) {
+        this.blob = blob;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getVersion() {
+        return version;
     }
 
-    public void setData(byte[] data) {
-        this.data = data;
+    public void setVersion(Long version) {
+        this.version = version;
     }
 
     public Student getStudent() {
@@ -101,15 +123,15 @@ public class Avatar {
                 Objects.equals(id, avatar.id) &&
                 Objects.equals(filePath, avatar.filePath) &&
                 Objects.equals(mediaType, avatar.mediaType) &&
-                Arrays.equals(data, avatar.data) &&
+                Objects.equals(blob, avatar.blob) &&
+                Objects.equals(updatedAt, avatar.updatedAt) &&
+                Objects.equals(version, avatar.version) &&
                 Objects.equals(student, avatar.student);
     }
 
     @Override
     public int hashCode() {
-        int result = Objects.hash(id, filePath, fileSize, mediaType, student);
-        result = 31 * result + Arrays.hashCode(data);
-        return result;
+        return Objects.hash(id, filePath, fileSize, mediaType, blob, updatedAt, version, student);
     }
 
     @Override
@@ -119,6 +141,8 @@ public class Avatar {
                 ", filePath='" + filePath + '\'' +
                 ", fileSize=" + fileSize +
                 ", mediaType='" + mediaType + '\'' +
+                ", version=" + version +
+                ", blobHash='" + (blob != null ? blob.getHash() : "null") + '\'' +
                 ", studentId=" + (student != null ? student.getId() : "null") +
                 '}';
     }
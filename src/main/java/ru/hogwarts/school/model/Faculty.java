@@ -7,7 +7,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "faculties")
+@Table(name = "faculties", indexes = @Index(name = "idx_faculties_name_id", columnList = "name, id"))
 public class Faculty {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -19,6 +19,11 @@ public class Faculty {
     @JsonIgnore
     private Set<Student> students = new HashSet<>();
 
+    // Значение по умолчанию заполняет версию у факультетов, созданных до появления этого столбца
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint not null default 0")
+    private Long version;
+
     public Long getId() {
         return id;
     }
@@ -46,4 +51,12 @@ public class Faculty {
     public Set<Student> getStudents() {
         return students;
     }
-}
\ No newline at end of file
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,56 @@
+package ru.hogwarts.school.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+// Сводка по студентам факультета; пишется только upsert-запросами FacultyStatsRepository
+@Entity
+@Table(name = "faculty_stats")
+public class FacultyStats {
+    @Id
+    @Column(name = "faculty_id")
+    private Long facultyId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "faculty_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Faculty faculty;
+
+    @Column(name = "student_count", nullable = false)
+    private long studentCount;
+
+    @Column(name = "age_sum", nullable = false)
+    private long ageSum;
+
+    @Column(name = "min_age")
+    private Integer minAge;
+
+    @Column(name = "max_age")
+    private Integer maxAge;
+
+    public Long getFacultyId() {
+        return facultyId;
+    }
+
+    public Faculty getFaculty() {
+        return faculty;
+    }
+
+    public long getStudentCount() {
+        return studentCount;
+    }
+
+    public long getAgeSum() {
+        return ageSum;
+    }
+
+    public Integer getMinAge() {
+        return minAge;
+    }
+
+    public Integer getMaxAge() {
+        return maxAge;
+    }
+}
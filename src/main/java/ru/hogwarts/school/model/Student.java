@@ -4,6 +4,11 @@ import jakarta.persistence.*;
 import java.util.Objects;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_student_name_id", columnList = "name, id"),
+        @Index(name = "idx_student_age_id", columnList = "age, id"),
+        @Index(name = "idx_student_faculty_id_age", columnList = "faculty_id, age")
+})
 public class Student {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -18,6 +23,11 @@ public class Student {
     @OneToOne(mappedBy = "student", cascade = CascadeType.ALL)
     private Avatar avatar;
 
+    // Значение по умолчанию нужно для строк, созданных до появления версии, и для пакетного импорта
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint not null default 0")
+    private Long version;
+
     public Long getId() {
         return id;
     }
@@ -58,6 +68,14 @@ public class Student {
         this.avatar = avatar;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,102 @@
+package ru.hogwarts.school.pagination;
+
+import org.springframework.data.domain.Limit;
+import ru.hogwarts.school.dto.CursorPage;
+import ru.hogwarts.school.exceptions.InvalidPageRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// Позиция после последней строки страницы: значение ключа сортировки и id для разрешения равенств
+public record KeysetCursor(String sort, long id, String value) {
+    public static final int MAX_PAGE_SIZE = 100;
+
+    public static KeysetCursor start(String sort) {
+        return new KeysetCursor(sort, 0, null);
+    }
+
+    public String encode() {
+        String raw = sort + ":" + id + (value != null ? ":" + value : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Значение числового ключа сортировки. Его присылает клиент, поэтому отсутствие значения
+    // или не-число означает повреждённый курсор, а не ошибку сервера
+    public int intValue() {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw invalidCursor();
+        }
+    }
+
+    public long longValue() {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw invalidCursor();
+        }
+    }
+
+    // null в ответе означает первую страницу
+    public static KeysetCursor decode(String token, String sort) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            if (parts.length < 2 || !parts[0].equals(sort)) {
+                throw new InvalidPageRequestException("Курсор не соответствует сортировке " + sort);
+            }
+            return new KeysetCursor(parts[0], Long.parseLong(parts[1]), parts.length == 3 ? parts[2] : null);
+        } catch (IllegalArgumentException e) {
+            throw invalidCursor();
+        }
+    }
+
+    public static void validate(String sort, int size, Set<String> allowedSorts) {
+        if (!allowedSorts.contains(sort)) {
+            throw new InvalidPageRequestException("Недопустимое поле сортировки: " + sort + ". Доступны: " + allowedSorts);
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new InvalidPageRequestException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+    }
+
+    // Строки с NULL в строковом ключе идут последними: когда строки со значением закончились,
+    // страница дополняется ими по id
+    public static <T> List<T> nullsLast(KeysetCursor after, int limit,
+                                        Function<Limit, List<T>> firstPage,
+                                        BiFunction<KeysetCursor, Limit, List<T>> nextPage,
+                                        BiFunction<Long, Limit, List<T>> withoutValue) {
+        if (after != null && after.value() == null) {
+            return withoutValue.apply(after.id(), Limit.of(limit));
+        }
+        List<T> rows = after == null ? firstPage.apply(Limit.of(limit)) : nextPage.apply(after, Limit.of(limit));
+        if (rows.size() >= limit) {
+            return rows;
+        }
+        List<T> result = new ArrayList<>(rows);
+        result.addAll(withoutValue.apply(0L, Limit.of(limit - rows.size())));
+        return result;
+    }
+
+    private static InvalidPageRequestException invalidCursor() {
+        return new InvalidPageRequestException("Некорректный курсор страницы");
+    }
+
+    // Запрос выбирает size + 1 строк: лишняя строка лишь показывает, что следующая страница есть
+    public static <T> CursorPage<T> toPage(List<T> rows, int size, Function<T, KeysetCursor> cursorOf, Long total) {
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null, total);
+        }
+        List<T> content = rows.subList(0, size);
+        return new CursorPage<>(content, cursorOf.apply(content.get(size - 1)).encode(), total);
+    }
+}
@@ -0,0 +1,47 @@
+package ru.hogwarts.school.repository;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Переносит содержимое из прежнего столбца avatars.data в avatar_blobs, пока он есть в схеме.
+// Выполняется после обновления схемы Hibernate, когда таблица avatar_blobs уже создана
+@Component
+@DependsOn("entityManagerFactory")
+public class AvatarBlobMigration {
+    private static final Logger log = LoggerFactory.getLogger(AvatarBlobMigration.class);
+    private static final String SCRIPT = "db/avatar-blobs-migration.sql";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public AvatarBlobMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void migrate() {
+        if (!hasLegacyDataColumn()) {
+            return;
+        }
+        log.info("Перенос содержимого аватаров из avatars.data в avatar_blobs");
+        // Скрипт целиком в одной транзакции: при ошибке схема остаётся прежней
+        transactionTemplate.executeWithoutResult(status ->
+                new ResourceDatabasePopulator(new ClassPathResource(SCRIPT)).execute(jdbcTemplate.getDataSource()));
+    }
+
+    private boolean hasLegacyDataColumn() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM information_schema.columns " +
+                        "WHERE table_schema = current_schema() AND table_name = 'avatars' AND column_name = 'data')",
+                Boolean.class));
+    }
+}
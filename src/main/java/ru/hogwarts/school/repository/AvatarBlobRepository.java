@@ -0,0 +1,35 @@
+package ru.hogwarts.school.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.model.AvatarBlob;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface AvatarBlobRepository extends JpaRepository<AvatarBlob, String> {
+
+    @Modifying
+    @Query("UPDATE AvatarBlob b SET b.refCount = b.refCount + 1, b.releasedAt = null WHERE b.hash = :hash")
+    int retain(@Param("hash") String hash);
+
+    // Условие на счётчик не даёт повторному освобождению увести его в минус
+    @Modifying
+    @Query("UPDATE AvatarBlob b SET b.refCount = b.refCount - 1, b.releasedAt = :now " +
+            "WHERE b.hash = :hash AND b.refCount > 0")
+    int release(@Param("hash") String hash, @Param("now") Instant now);
+
+    @Query("SELECT b.hash FROM AvatarBlob b WHERE b.refCount <= 0 AND b.releasedAt < :releasedBefore")
+    List<String> findUnreferenced(@Param("releasedBefore") Instant releasedBefore, Limit limit);
+
+    @Query("SELECT b.filePath FROM AvatarBlob b WHERE b.hash = :hash")
+    Optional<String> findFilePath(@Param("hash") String hash);
+
+    @Modifying
+    @Query("DELETE FROM AvatarBlob b WHERE b.hash = :hash AND b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("hash") String hash);
+}
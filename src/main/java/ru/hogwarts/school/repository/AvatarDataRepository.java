@@ -0,0 +1,52 @@
+package ru.hogwarts.school.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class AvatarDataRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public AvatarDataRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Одновременная загрузка того же содержимого только увеличивает счётчик ссылок
+    public void insertBlob(String hash, Path source, long size, String mediaType) {
+        jdbcTemplate.execute("INSERT INTO avatar_blobs (hash, file_path, file_size, media_type, ref_count, data) " +
+                "VALUES (?, ?, ?, ?, 1, ?) " +
+                "ON CONFLICT (hash) DO UPDATE SET ref_count = avatar_blobs.ref_count + 1, released_at = NULL",
+                (PreparedStatementCallback<Integer>) ps -> {
+                    try (InputStream in = Files.newInputStream(source)) {
+                        ps.setString(1, hash);
+                        ps.setString(2, source.toString());
+                        ps.setLong(3, size);
+                        ps.setString(4, mediaType);
+                        ps.setBinaryStream(5, in, Math.toIntExact(size));
+                        return ps.executeUpdate();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    // Блокировка до конца транзакции: загрузки одного содержимого и уборка его файла после отката идут по очереди
+    public void lockHash(String hash) {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtext(?))", rs -> null, hash);
+    }
+
+    public Optional<byte[]> readData(String hash) {
+        List<byte[]> rows = jdbcTemplate.query("SELECT data FROM avatar_blobs WHERE hash = ?",
+                (rs, rowNum) -> rs.getBytes(1), hash);
+        return rows.stream().findFirst();
+    }
+}
@@ -1,20 +1,61 @@
 package ru.hogwarts.school.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.dto.AvatarFileDto;
+import ru.hogwarts.school.dto.AvatarResponseDto;
 import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.AvatarBlob;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 public interface AvatarRepository extends JpaRepository<Avatar, Long> {
 
     Optional<Avatar> findByStudentId(Long studentId);
 
+    @Query("SELECT new ru.hogwarts.school.dto.AvatarFileDto(a.id, a.student.id, a.filePath, a.fileSize, a.mediaType, a.blob.hash, a.updatedAt) " +
+            "FROM Avatar a WHERE a.student.id = :studentId")
+    Optional<AvatarFileDto> findFileByStudentId(@Param("studentId") Long studentId);
+
+    @Query("SELECT new ru.hogwarts.school.dto.AvatarFileDto(a.id, a.student.id, a.filePath, a.fileSize, a.mediaType, a.blob.hash, a.updatedAt) " +
+            "FROM Avatar a WHERE a.id = :id")
+    Optional<AvatarFileDto> findFileById(@Param("id") Long id);
+
+    // Метаданные для API: колонка с содержимым и связанный студент не загружаются
+    @Query("SELECT new ru.hogwarts.school.dto.AvatarResponseDto(a.id, a.student.id, a.fileSize, a.mediaType, a.version) " +
+            "FROM Avatar a WHERE a.id > :afterId ORDER BY a.id")
+    List<AvatarResponseDto> findPageById(@Param("afterId") long afterId, Limit limit);
+
+    @Query("SELECT new ru.hogwarts.school.dto.AvatarResponseDto(a.id, a.student.id, a.fileSize, a.mediaType, a.version) " +
+            "FROM Avatar a WHERE (a.fileSize, a.id) > (:fileSize, :afterId) ORDER BY a.fileSize, a.id")
+    List<AvatarResponseDto> findPageByFileSize(@Param("fileSize") long fileSize, @Param("afterId") long afterId,
+                                               Limit limit);
+
+    @Query("SELECT new ru.hogwarts.school.dto.AvatarResponseDto(a.id, a.student.id, a.fileSize, a.mediaType, a.version) " +
+            "FROM Avatar a WHERE a.id = :id")
+    Optional<AvatarResponseDto> findResponseById(@Param("id") Long id);
+
+    @Query("SELECT new ru.hogwarts.school.dto.AvatarResponseDto(a.id, a.student.id, a.fileSize, a.mediaType, a.version) " +
+            "FROM Avatar a WHERE a.student.id = :studentId")
+    Optional<AvatarResponseDto> findResponseByStudentId(@Param("studentId") Long studentId);
+
+    long countByFileSizeGreaterThan(long minSize);
+
     boolean existsByStudentId(Long studentId);
 
+    @Modifying
+    @Query("UPDATE Avatar a SET a.blob = :blob, a.filePath = :filePath, a.fileSize = :fileSize, a.updatedAt = :updatedAt, " +
+            "a.version = a.version + 1 " +
+            "WHERE a.id = :id")
+    void updateBlob(@Param("id") Long id, @Param("blob") AvatarBlob blob, @Param("filePath") String filePath,
+                    @Param("fileSize") long fileSize, @Param("updatedAt") Instant updatedAt);
+
     @Transactional
     @Modifying
     @Query("DELETE FROM Avatar a WHERE a.student.id = :studentId")
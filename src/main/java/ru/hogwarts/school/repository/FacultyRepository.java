@@ -1,13 +1,40 @@
 package ru.hogwarts.school.repository;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.dto.FacultyExportDto;
 import ru.hogwarts.school.model.Faculty;
 
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface FacultyRepository extends JpaRepository<Faculty, Long> {
-    @Query("SELECT f FROM Faculty f WHERE LOWER(f.name) LIKE LOWER(concat('%', :query, '%')) OR LOWER(f.color) LIKE LOWER(concat('%', :query, '%'))")
-    List<Faculty> findByNameOrColorIgnoreCase(@Param("query") String query);
+    @Query("SELECT new ru.hogwarts.school.dto.FacultyExportDto(f.id, f.name, f.color) FROM Faculty f")
+    List<FacultyExportDto> findAllNamesAndColors();
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT new ru.hogwarts.school.dto.FacultyExportDto(f.id, f.name, f.color) FROM Faculty f ORDER BY f.id")
+    Stream<FacultyExportDto> streamAllForExport();
+
+    @Query("SELECT f.id FROM Faculty f")
+    List<Long> findAllIds();
+
+    @Query("SELECT f FROM Faculty f WHERE f.id > :afterId ORDER BY f.id")
+    List<Faculty> findPageById(@Param("afterId") long afterId, Limit limit);
+
+    @Query("SELECT f FROM Faculty f WHERE f.name IS NOT NULL ORDER BY f.name, f.id")
+    List<Faculty> findFirstPageByName(Limit limit);
+
+    @Query("SELECT f FROM Faculty f WHERE (f.name, f.id) > (:name, :afterId) ORDER BY f.name, f.id")
+    List<Faculty> findPageByName(@Param("name") String name, @Param("afterId") long afterId, Limit limit);
+
+    @Query("SELECT f FROM Faculty f WHERE f.name IS NULL AND f.id > :afterId ORDER BY f.id")
+    List<Faculty> findPageWithoutName(@Param("afterId") long afterId, Limit limit);
 }
\ No newline at end of file
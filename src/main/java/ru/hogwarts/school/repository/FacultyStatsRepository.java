@@ -0,0 +1,59 @@
+package ru.hogwarts.school.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.dto.FacultyStatsDto;
+import ru.hogwarts.school.model.FacultyStats;
+
+import java.util.List;
+
+public interface FacultyStatsRepository extends JpaRepository<FacultyStats, Long> {
+
+    @Query("SELECT new ru.hogwarts.school.dto.FacultyStatsDto(f.id, f.name, fs.studentCount, fs.ageSum, fs.minAge, fs.maxAge) " +
+            "FROM FacultyStats fs JOIN fs.faculty f ORDER BY fs.facultyId")
+    List<FacultyStatsDto> findAllDtos();
+
+    // Счётчик и сумма меняются на дельту; upsert заодно берёт блокировку строки до конца транзакции
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO faculty_stats (faculty_id, student_count, age_sum) " +
+            "VALUES (:facultyId, :countDelta, :ageSumDelta) " +
+            "ON CONFLICT (faculty_id) DO UPDATE SET " +
+            "student_count = faculty_stats.student_count + EXCLUDED.student_count, " +
+            "age_sum = faculty_stats.age_sum + EXCLUDED.age_sum", nativeQuery = true)
+    void applyDelta(@Param("facultyId") long facultyId, @Param("countDelta") long countDelta,
+                    @Param("ageSumDelta") long ageSumDelta);
+
+    // Вызывается после applyDelta, уже под блокировкой строки: отдельный оператор получает свежий снимок
+    // и видит студентов транзакции, закоммиченной, пока мы ждали блокировку. min/max берутся из индекса
+    // (faculty_id, age), поэтому стоимость не зависит от размера факультета
+    @Modifying
+    @Query(value = "UPDATE faculty_stats SET " +
+            "min_age = (SELECT MIN(s.age) FROM student s WHERE s.faculty_id = :facultyId), " +
+            "max_age = (SELECT MAX(s.age) FROM student s WHERE s.faculty_id = :facultyId) " +
+            "WHERE faculty_id = :facultyId", nativeQuery = true)
+    void refreshAgeRange(@Param("facultyId") long facultyId);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO faculty_stats (faculty_id, student_count, age_sum, min_age, max_age) " +
+            "SELECT f.id, COUNT(s.id), COALESCE(SUM(s.age), 0), MIN(s.age), MAX(s.age) " +
+            "FROM faculties f LEFT JOIN student s ON s.faculty_id = f.id GROUP BY f.id " +
+            "ON CONFLICT (faculty_id) DO UPDATE SET " +
+            "student_count = EXCLUDED.student_count, age_sum = EXCLUDED.age_sum, " +
+            "min_age = EXCLUDED.min_age, max_age = EXCLUDED.max_age", nativeQuery = true)
+    int rebuildAll();
+
+    @Modifying
+    @Query(value = "INSERT INTO faculty_stats (faculty_id, student_count, age_sum, min_age, max_age) " +
+            "SELECT f.id, COUNT(s.id), COALESCE(SUM(s.age), 0), MIN(s.age), MAX(s.age) " +
+            "FROM faculties f LEFT JOIN student s ON s.faculty_id = f.id " +
+            "WHERE NOT EXISTS (SELECT 1 FROM faculty_stats fs WHERE fs.faculty_id = f.id) GROUP BY f.id " +
+            "ON CONFLICT (faculty_id) DO NOTHING", nativeQuery = true)
+    int insertMissing();
+
+    // Ждёт незакоммиченные изменения студентов и не пускает новые, пока сводка пересчитывается
+    @Modifying
+    @Query(value = "LOCK TABLE student IN SHARE MODE", nativeQuery = true)
+    void lockStudents();
+}
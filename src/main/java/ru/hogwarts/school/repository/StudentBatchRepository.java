@@ -0,0 +1,50 @@
+package ru.hogwarts.school.repository;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.hogwarts.school.dto.StudentRequestDto;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+@Repository
+public class StudentBatchRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public StudentBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // IDENTITY отключает пакетную вставку, поэтому id берутся из той же последовательности заранее, одним запросом
+    public List<Long> reserveIds(int count) {
+        return jdbcTemplate.queryForList(
+                "SELECT nextval(pg_get_serial_sequence('student', 'id')) FROM generate_series(1, ?)",
+                Long.class, count);
+    }
+
+    public void insertAll(List<Long> ids, List<StudentRequestDto> students) {
+        jdbcTemplate.batchUpdate("INSERT INTO student (id, name, age, faculty_id) VALUES (?, ?, ?, ?)",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        StudentRequestDto student = students.get(i);
+                        ps.setLong(1, ids.get(i));
+                        ps.setString(2, student.getName());
+                        ps.setInt(3, student.getAge());
+                        if (student.getFacultyId() != null) {
+                            ps.setLong(4, student.getFacultyId());
+                        } else {
+                            ps.setNull(4, Types.BIGINT);
+                        }
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return students.size();
+                    }
+                });
+    }
+}
@@ -1,22 +1,100 @@
 package ru.hogwarts.school.repository;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.hogwarts.school.dto.AgeCountDto;
+import ru.hogwarts.school.dto.FacultyStudentIdDto;
+import ru.hogwarts.school.dto.StudentAgeDto;
+import ru.hogwarts.school.dto.StudentNameDto;
+import ru.hogwarts.school.dto.StudentResponseDto;
 import ru.hogwarts.school.model.Student;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface StudentRepository extends JpaRepository<Student, Long> {
-    List<Student> findByAgeBetween(int minAge, int maxAge);
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
+public interface StudentRepository extends JpaRepository<Student, Long> {
     List<Student> findByFacultyId(Long facultyId);
 
+    @Query("SELECT new ru.hogwarts.school.dto.StudentResponseDto(s.id, s.name, s.age, s.faculty.id) " +
+            "FROM Student s WHERE s.id = :id")
+    Optional<StudentResponseDto> findDtoById(@Param("id") Long id);
+
+    // Id студентов сразу для всех факультетов ответа: сущности Student и их аватары не загружаются
+    @Query("SELECT new ru.hogwarts.school.dto.FacultyStudentIdDto(s.faculty.id, s.id) " +
+            "FROM Student s WHERE s.faculty.id IN :facultyIds ORDER BY s.id")
+    List<FacultyStudentIdDto> findIdsByFacultyIds(@Param("facultyIds") Collection<Long> facultyIds);
+
+    @Query("SELECT new ru.hogwarts.school.dto.StudentResponseDto(s.id, s.name, s.age, s.faculty.id) " +
+            "FROM Student s WHERE s.id IN :ids")
+    List<StudentResponseDto> findDtosByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new ru.hogwarts.school.dto.StudentResponseDto(s.id, s.name, s.age, s.faculty.id) " +
+            "FROM Student s WHERE s.faculty.id = :facultyId ORDER BY s.id")
+    List<StudentResponseDto> findDtosByFacultyId(@Param("facultyId") Long facultyId);
+
+    // Keyset-страницы: условие по (ключ, id) обслуживается индексом, глубина страницы не влияет на стоимость
+    @Query("SELECT new ru.hogwarts.school.dto.StudentResponseDto(s.id, s.name, s.age, s.faculty.id) " +
+            "FROM Student s WHERE s.id > :afterId ORDER BY s.id")
+    List<StudentResponseDto> findPageById(@Param("afterId") long afterId, Limit limit);
+
+    @Query("SELECT new ru.hogwarts.school.dto.StudentResponseDto(s.id, s.name, s.age, s.faculty.id) " +
+            "FROM Student s WHERE (s.age, s.id) > (:age, :afterId) ORDER BY s.age, s.id")
+    List<StudentResponseDto> findPageByAge(@Param("age") int age, @Param("afterId") long afterId, Limit limit);
+
+    @Query("SELECT new ru.hogwarts.school.dto.StudentResponseDto(s.id, s.name, s.age, s.faculty.id) " +
+            "FROM Student s WHERE s.name IS NOT NULL ORDER BY s.name, s.id")
+    List<StudentResponseDto> findFirstPageByName(Limit limit);
+
+    @Query("SELECT new ru.hogwarts.school.dto.StudentResponseDto(s.id, s.name, s.age, s.faculty.id) " +
+            "FROM Student s WHERE (s.name, s.id) > (:name, :afterId) ORDER BY s.name, s.id")
+    List<StudentResponseDto> findPageByName(@Param("name") String name, @Param("afterId") long afterId, Limit limit);
+
+    // Студенты без имени идут после всех остальных, как NULLS LAST в PostgreSQL
+    @Query("SELECT new ru.hogwarts.school.dto.StudentResponseDto(s.id, s.name, s.age, s.faculty.id) " +
+            "FROM Student s WHERE s.name IS NULL AND s.id > :afterId ORDER BY s.id")
+    List<StudentResponseDto> findPageWithoutName(@Param("afterId") long afterId, Limit limit);
+
+    // Строки читаются курсором порциями по fetch size; работает только внутри транзакции (auto-commit выключен)
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT new ru.hogwarts.school.dto.StudentResponseDto(s.id, s.name, s.age, s.faculty.id) " +
+            "FROM Student s WHERE s.faculty.id = :facultyId ORDER BY s.id")
+    Stream<StudentResponseDto> streamDtosByFacultyId(@Param("facultyId") Long facultyId);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT new ru.hogwarts.school.dto.StudentResponseDto(s.id, s.name, s.age, s.faculty.id) " +
+            "FROM Student s ORDER BY s.id")
+    Stream<StudentResponseDto> streamAllDtos();
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT new ru.hogwarts.school.dto.StudentAgeDto(s.id, s.age) FROM Student s")
+    Stream<StudentAgeDto> streamAllAges();
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    @Query("SELECT new ru.hogwarts.school.dto.StudentNameDto(s.id, s.name) FROM Student s WHERE s.name IS NOT NULL")
+    Stream<StudentNameDto> streamAllNames();
+
     @Query("SELECT COUNT(s) FROM Student s")
     long countAllStudents();
 
     @Query("SELECT AVG(s.age) FROM Student s")
     Double getAverageAge();
 
-    @Query(value = "SELECT * FROM students ORDER BY id DESC LIMIT 5", nativeQuery = true)
+    @Query("SELECT new ru.hogwarts.school.dto.AgeCountDto(s.age, COUNT(s)) FROM Student s GROUP BY s.age")
+    List<AgeCountDto> countByAge();
+
+    @Query("SELECT new ru.hogwarts.school.dto.StudentResponseDto(s.id, s.name, s.age, s.faculty.id) " +
+            "FROM Student s ORDER BY s.id DESC")
+    List<StudentResponseDto> findLatest(Limit limit);
+
+    @Query(value = "SELECT * FROM student ORDER BY id DESC LIMIT 5", nativeQuery = true)
     List<Student> findLastFiveStudents();
 }
\ No newline at end of file
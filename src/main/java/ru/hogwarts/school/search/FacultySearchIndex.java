@@ -0,0 +1,152 @@
+package ru.hogwarts.school.search;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.dto.FacultyExportDto;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.transaction.AfterCommit;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Триграммный индекс по названию и цвету факультетов: поиск подстроки без обращения к БД.
+// Триграммы только сужают круг кандидатов, совпадение подтверждается проверкой contains.
+@Component
+public class FacultySearchIndex {
+    static final int GRAM = 3;
+
+    private final FacultyRepository facultyRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+
+    public FacultySearchIndex(FacultyRepository facultyRepository) {
+        this.facultyRepository = facultyRepository;
+    }
+
+    @PostConstruct
+    void build() {
+        for (FacultyExportDto faculty : facultyRepository.findAllNamesAndColors()) {
+            put(faculty.id(), faculty.name(), faculty.color());
+        }
+    }
+
+    public void indexAfterCommit(Long id, String name, String color) {
+        AfterCommit.run(() -> put(id, name, color));
+    }
+
+    public void removeAfterCommit(Long id) {
+        AfterCommit.run(() -> remove(id));
+    }
+
+    // Та же семантика, что у LOWER(name) LIKE '%q%' OR LOWER(color) LIKE '%q%'; id по возрастанию
+    public List<Long> search(String query) {
+        String needle = normalize(query);
+        lock.readLock().lock();
+        try {
+            List<Long> result = new ArrayList<>();
+            for (Long id : candidates(needle)) {
+                if (documents.get(id).contains(needle)) {
+                    result.add(id);
+                }
+            }
+            result.sort(Comparator.naturalOrder());
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void put(Long id, String name, String color) {
+        Document document = new Document(normalize(name), normalize(color));
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            documents.put(id, document);
+            for (String gram : document.grams()) {
+                postings.computeIfAbsent(gram, g -> new HashSet<>()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(Long id) {
+        Document previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String gram : previous.grams()) {
+            Set<Long> ids = postings.get(gram);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    // Пересечение списков начинается с самого короткого; запрос короче триграммы проверяет все документы
+    private Set<Long> candidates(String needle) {
+        if (needle == null || needle.length() < GRAM) {
+            return documents.keySet();
+        }
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String gram : grams(needle)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null) {
+                return Set.of();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Long> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    private static String normalize(String value) {
+        return value != null ? value.toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static Set<String> grams(String value) {
+        Set<String> grams = new HashSet<>();
+        if (value != null) {
+            for (int i = 0; i + GRAM <= value.length(); i++) {
+                grams.add(value.substring(i, i + GRAM));
+            }
+        }
+        return grams;
+    }
+
+    private record Document(String name, String color) {
+        boolean contains(String needle) {
+            // LIKE с NULL не совпадает ни с чем, в том числе с пустым запросом
+            return needle != null && (name != null && name.contains(needle) || color != null && color.contains(needle));
+        }
+
+        Set<String> grams() {
+            Set<String> grams = FacultySearchIndex.grams(name);
+            grams.addAll(FacultySearchIndex.grams(color));
+            return grams;
+        }
+    }
+}
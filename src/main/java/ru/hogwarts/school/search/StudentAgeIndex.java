@@ -0,0 +1,179 @@
+package ru.hogwarts.school.search;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.dto.StudentAgeDto;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.transaction.AfterCommit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// Id студентов, разложенные по возрастам: в каждой корзине отсортированный long[].
+// Возрастов единицы, поэтому подсчёт по диапазону - сумма размеров корзин, а страница - бинарный поиск в одной из них.
+@Component
+public class StudentAgeIndex {
+    private final StudentRepository studentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<Integer, Bucket> buckets = new TreeMap<>();
+
+    public StudentAgeIndex(StudentRepository studentRepository, PlatformTransactionManager transactionManager) {
+        this.studentRepository = studentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    void build() {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<StudentAgeDto> rows = studentRepository.streamAllAges()) {
+                rows.forEach(this::add);
+            }
+        });
+    }
+
+    public void addAfterCommit(Long id, int age) {
+        AfterCommit.run(() -> add(new StudentAgeDto(id, age)));
+    }
+
+    public void moveAfterCommit(Long id, int previousAge, int age) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                removeLocked(id, previousAge);
+                bucket(age).add(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void removeAfterCommit(Long id, int age) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                removeLocked(id, age);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Для уже закоммиченных строк, например пачки импорта
+    public void addAll(Collection<StudentAgeDto> students) {
+        lock.writeLock().lock();
+        try {
+            students.forEach(s -> bucket(s.age()).add(s.id()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long count(int minAge, int maxAge) {
+        if (minAge > maxAge) {
+            return 0;
+        }
+        lock.readLock().lock();
+        try {
+            long count = 0;
+            for (Bucket bucket : buckets.subMap(minAge, true, maxAge, true).values()) {
+                count += bucket.size;
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // До limit студентов в порядке (age, id) строго после (afterAge, afterId)
+    public List<StudentAgeDto> findPage(int minAge, int maxAge, int afterAge, long afterId, int limit) {
+        List<StudentAgeDto> page = new ArrayList<>(limit);
+        int fromAge = Math.max(minAge, afterAge);
+        if (fromAge > maxAge) {
+            return page;
+        }
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<Integer, Bucket> entry : buckets.subMap(fromAge, true, maxAge, true).entrySet()) {
+                Bucket bucket = entry.getValue();
+                int position = entry.getKey() == afterAge ? bucket.firstAfter(afterId) : 0;
+                for (; position < bucket.size && page.size() < limit; position++) {
+                    page.add(new StudentAgeDto(bucket.ids[position], entry.getKey()));
+                }
+                if (page.size() == limit) {
+                    break;
+                }
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(StudentAgeDto student) {
+        lock.writeLock().lock();
+        try {
+            bucket(student.age()).add(student.id());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(Long id, int age) {
+        Bucket bucket = buckets.get(age);
+        if (bucket != null) {
+            bucket.remove(id);
+            if (bucket.size == 0) {
+                buckets.remove(age);
+            }
+        }
+    }
+
+    private Bucket bucket(int age) {
+        return buckets.computeIfAbsent(age, a -> new Bucket());
+    }
+
+    private static final class Bucket {
+        private long[] ids = new long[16];
+        private int size;
+
+        // Новые id обычно больше всех имеющихся, тогда вставка - просто дописывание в конец
+        void add(long id) {
+            int position = size > 0 && ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0 && position < size) {
+                return;
+            }
+            int insertAt = position >= 0 ? position : -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        void remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                size--;
+            }
+        }
+
+        int firstAfter(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            return position >= 0 ? position + 1 : -position - 1;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package ru.hogwarts.school.search;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.dto.StudentNameDto;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.transaction.AfterCommit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// Индекс имён студентов для автодополнения без учёта регистра.
+// Основная часть - отсортированный массив: имена подряд в одном char[], смещения и id в примитивных массивах.
+// Изменения копятся в небольшом TreeSet и удалённых id и вливаются в массив, когда их становится много.
+@Component
+public class StudentNameIndex {
+    static final int MIN_MERGE_THRESHOLD = 1024;
+
+    // Тот же порядок, что у String.CASE_INSENSITIVE_ORDER; при равных именах - по id
+    static final Comparator<StudentNameDto> ORDER = Comparator.comparing(StudentNameDto::name, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(StudentNameDto::id);
+
+    private final StudentRepository studentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Snapshot snapshot = Snapshot.of(List.of());
+    private final NavigableSet<StudentNameDto> added = new TreeSet<>(ORDER);
+    private final Set<Long> removed = new HashSet<>();
+
+    public StudentNameIndex(StudentRepository studentRepository, PlatformTransactionManager transactionManager) {
+        this.studentRepository = studentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    void build() {
+        List<StudentNameDto> names = transactionTemplate.execute(status -> {
+            try (Stream<StudentNameDto> rows = studentRepository.streamAllNames()) {
+                return rows.toList();
+            }
+        });
+        replace(names);
+    }
+
+    public void addAfterCommit(Long id, String name) {
+        AfterCommit.run(() -> addAll(List.of(new StudentNameDto(id, name))));
+    }
+
+    public void renameAfterCommit(Long id, String previousName, String name) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                removeLocked(id, previousName);
+                addLocked(new StudentNameDto(id, name));
+                mergeIfNeeded();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void removeAfterCommit(Long id, String name) {
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                removeLocked(id, name);
+                mergeIfNeeded();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    // Для уже закоммиченных строк, например пачки импорта
+    public void addAll(Collection<StudentNameDto> students) {
+        lock.writeLock().lock();
+        try {
+            students.forEach(this::addLocked);
+            mergeIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Слияние двух упорядоченных последовательностей: массива без удалённых id и свежих добавлений
+    public List<StudentNameDto> findByPrefix(String prefix, int limit) {
+        List<StudentNameDto> result = new ArrayList<>(Math.min(limit, 16));
+        lock.readLock().lock();
+        try {
+            int position = snapshot.lowerBound(prefix);
+            Iterator<StudentNameDto> fresh = added.tailSet(new StudentNameDto(Long.MIN_VALUE, prefix), true).iterator();
+            StudentNameDto next = nextWithPrefix(fresh, prefix);
+            while (result.size() < limit) {
+                while (position < snapshot.size() && removed.contains(snapshot.id(position))) {
+                    position++;
+                }
+                StudentNameDto stored = position < snapshot.size() && snapshot.startsWith(position, prefix)
+                        ? snapshot.get(position) : null;
+                if (stored == null && next == null) {
+                    break;
+                }
+                if (next == null || stored != null && ORDER.compare(stored, next) < 0) {
+                    result.add(stored);
+                    position++;
+                } else {
+                    result.add(next);
+                    next = nextWithPrefix(fresh, prefix);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return snapshot.size() - removed.size() + added.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static StudentNameDto nextWithPrefix(Iterator<StudentNameDto> iterator, String prefix) {
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        StudentNameDto candidate = iterator.next();
+        return candidate.name().regionMatches(true, 0, prefix, 0, prefix.length()) ? candidate : null;
+    }
+
+    private void addLocked(StudentNameDto student) {
+        // Студенты без имени в автодополнение не попадают
+        if (student.name() != null) {
+            added.add(student);
+        }
+    }
+
+    private void removeLocked(Long id, String name) {
+        if (name == null) {
+            return;
+        }
+        if (!added.remove(new StudentNameDto(id, name))) {
+            removed.add(id);
+        }
+    }
+
+    private void mergeIfNeeded() {
+        if (added.size() + removed.size() <= Math.max(MIN_MERGE_THRESHOLD, snapshot.size() / 8)) {
+            return;
+        }
+        List<StudentNameDto> merged = new ArrayList<>(snapshot.size() - removed.size() + added.size());
+        Iterator<StudentNameDto> fresh = added.iterator();
+        StudentNameDto next = fresh.hasNext() ? fresh.next() : null;
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (removed.contains(snapshot.id(i))) {
+                continue;
+            }
+            StudentNameDto stored = snapshot.get(i);
+            while (next != null && ORDER.compare(next, stored) < 0) {
+                merged.add(next);
+                next = fresh.hasNext() ? fresh.next() : null;
+            }
+            merged.add(stored);
+        }
+        while (next != null) {
+            merged.add(next);
+            next = fresh.hasNext() ? fresh.next() : null;
+        }
+        snapshot = new Snapshot(merged);
+        added.clear();
+        removed.clear();
+    }
+
+    private void replace(List<StudentNameDto> students) {
+        lock.writeLock().lock();
+        try {
+            snapshot = Snapshot.of(students);
+            added.clear();
+            removed.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static final class Snapshot {
+        private final char[] chars;
+        private final int[] offsets;
+        private final long[] ids;
+
+        // students уже упорядочены по ORDER
+        private Snapshot(List<StudentNameDto> students) {
+            int length = 0;
+            for (StudentNameDto student : students) {
+                length += student.name().length();
+            }
+            chars = new char[length];
+            offsets = new int[students.size() + 1];
+            ids = new long[students.size()];
+            int offset = 0;
+            for (int i = 0; i < students.size(); i++) {
+                String name = students.get(i).name();
+                name.getChars(0, name.length(), chars, offset);
+                offsets[i] = offset;
+                ids[i] = students.get(i).id();
+                offset += name.length();
+            }
+            offsets[students.size()] = offset;
+        }
+
+        static Snapshot of(List<StudentNameDto> students) {
+            List<StudentNameDto> sorted = new ArrayList<>(students.size());
+            for (StudentNameDto student : students) {
+                if (student.name() != null) {
+                    sorted.add(student);
+                }
+            }
+            sorted.sort(ORDER);
+            return new Snapshot(sorted);
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        long id(int index) {
+            return ids[index];
+        }
+
+        StudentNameDto get(int index) {
+            return new StudentNameDto(ids[index], new String(chars, offsets[index], offsets[index + 1] - offsets[index]));
+        }
+
+        // Первая позиция, имя в которой не меньше prefix
+        int lowerBound(String prefix) {
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(middle, prefix) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        boolean startsWith(int index, String prefix) {
+            int start = offsets[index];
+            if (offsets[index + 1] - start < prefix.length()) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length(); i++) {
+                if (compareIgnoreCase(chars[start + i], prefix.charAt(i)) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int compare(int index, String value) {
+            int start = offsets[index];
+            int length = offsets[index + 1] - start;
+            int common = Math.min(length, value.length());
+            for (int i = 0; i < common; i++) {
+                int result = compareIgnoreCase(chars[start + i], value.charAt(i));
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return length - value.length();
+        }
+
+        // Посимвольное сравнение как в String.CASE_INSENSITIVE_ORDER
+        private static int compareIgnoreCase(char c1, char c2) {
+            if (c1 != c2) {
+                c1 = Character.toUpperCase(c1);
+                c2 = Character.toUpperCase(c2);
+                if (c1 != c2) {
+                    c1 = Character.toLowerCase(c1);
+                    c2 = Character.toLowerCase(c2);
+                    if (c1 != c2) {
+                        return c1 - c2;
+                    }
+                }
+            }
+            return 0;
+        }
+    }
+}
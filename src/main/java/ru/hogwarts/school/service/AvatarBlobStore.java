@@ -0,0 +1,159 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.repository.AvatarBlobRepository;
+import ru.hogwarts.school.repository.AvatarDataRepository;
+import ru.hogwarts.school.service.AvatarFileStorage.StoredFile;
+import ru.hogwarts.school.transaction.AfterRollback;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+@Service
+@Transactional
+public class AvatarBlobStore {
+    private static final Logger log = LoggerFactory.getLogger(AvatarBlobStore.class);
+    private static final int GC_BATCH_SIZE = 100;
+
+    private final AvatarBlobRepository blobRepository;
+    private final AvatarDataRepository dataRepository;
+    private final AvatarFileStorage fileStorage;
+    private final AvatarThumbnailService thumbnailService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransactionTemplate;
+
+    @Value("${avatars.dir.path}")
+    private String avatarsDir;
+
+    @Value("${avatars.blobs.gc-grace-period:PT1H}")
+    private Duration gcGracePeriod;
+
+    public AvatarBlobStore(AvatarBlobRepository blobRepository,
+                           AvatarDataRepository dataRepository,
+                           AvatarFileStorage fileStorage,
+                           AvatarThumbnailService thumbnailService,
+                           PlatformTransactionManager transactionManager) {
+        this.blobRepository = blobRepository;
+        this.dataRepository = dataRepository;
+        this.fileStorage = fileStorage;
+        this.thumbnailService = thumbnailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public StoredFile acquire(InputStream content, String mediaType) throws IOException {
+        StoredFile spooled = fileStorage.spool(content, blobsDir());
+        dataRepository.lockHash(spooled.checksum());
+
+        // Такое содержимое уже хранится: достаточно увеличить счётчик ссылок
+        if (blobRepository.retain(spooled.checksum()) > 0) {
+            Files.deleteIfExists(spooled.path());
+            Path existing = blobRepository.findFilePath(spooled.checksum())
+                    .map(Paths::get)
+                    .orElse(blobPath(spooled.checksum()));
+            return new StoredFile(existing, spooled.size(), spooled.checksum());
+        }
+
+        StoredFile stored = fileStorage.moveTo(spooled, blobPath(spooled.checksum()));
+        // При откате строка avatar_blobs исчезнет, а файл уборка по строкам уже не найдёт
+        AfterRollback.run(() -> deleteOrphanedFile(stored));
+        dataRepository.insertBlob(stored.checksum(), stored.path(), stored.size(), mediaType);
+        return stored;
+    }
+
+    // Под той же блокировкой, что и acquire: если параллельная загрузка того же содержимого успела
+    // закоммитить строку, файл по этому пути уже её и остаётся на месте
+    private void deleteOrphanedFile(StoredFile file) {
+        try {
+            newTransactionTemplate.executeWithoutResult(status -> {
+                dataRepository.lockHash(file.checksum());
+                if (blobRepository.existsById(file.checksum())) {
+                    return;
+                }
+                try {
+                    Files.deleteIfExists(file.path());
+                } catch (IOException e) {
+                    log.warn("Не удалось удалить файл аватара {} после отката", file.path(), e);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Не удалось убрать файл аватара {} после отката", file.path(), e);
+        }
+    }
+
+    public void release(String hash) {
+        if (hash == null) {
+            return;
+        }
+        // Кеш байтов не трогаем: по этому хешу содержимое не меняется, а блоб может быть нужен другим аватарам
+        if (blobRepository.release(hash, Instant.now()) == 0) {
+            log.warn("Содержимое аватара {} уже освобождено или не существует", hash);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public byte[] readData(String hash) {
+        return dataRepository.readData(hash)
+                .orElseThrow(() -> new IllegalStateException("Содержимое аватара " + hash + " не найдено"));
+    }
+
+    @Scheduled(fixedDelayString = "${avatars.blobs.gc-interval:PT10M}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int collectGarbage() {
+        Instant releasedBefore = Instant.now().minus(gcGracePeriod);
+        List<String> candidates = blobRepository.findUnreferenced(releasedBefore, Limit.of(GC_BATCH_SIZE));
+
+        int collected = 0;
+        for (String hash : candidates) {
+            // Файл удаляется до фиксации транзакции: параллельный acquire ждёт блокировку строки
+            Boolean deleted = transactionTemplate.execute(status -> {
+                String filePath = blobRepository.findFilePath(hash).orElse(null);
+                if (blobRepository.deleteIfUnreferenced(hash) == 0) {
+                    return false;
+                }
+                if (filePath != null) {
+                    try {
+                        Files.deleteIfExists(Paths.get(filePath));
+                    } catch (IOException e) {
+                        log.warn("Не удалось удалить файл аватара {}", filePath, e);
+                    }
+                    thumbnailService.deleteVariants(hash, Paths.get(filePath));
+                }
+                return true;
+            });
+            if (Boolean.TRUE.equals(deleted)) {
+                collected++;
+            }
+        }
+
+        if (collected > 0) {
+            log.info("Удалено неиспользуемых аватаров: {}", collected);
+        }
+        return collected;
+    }
+
+    private Path blobsDir() {
+        return Paths.get(avatarsDir, "blobs");
+    }
+
+    private Path blobPath(String hash) {
+        return blobsDir().resolve(hash.substring(0, 2)).resolve(hash + ".png");
+    }
+}
@@ -0,0 +1,49 @@
+package ru.hogwarts.school.service;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+@Component
+public class AvatarFileStorage {
+
+    public StoredFile spool(InputStream content, Path dir) throws IOException {
+        Files.createDirectories(dir);
+
+        // Поток читается один раз: размер и SHA-256 считаются во время записи на диск
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(dir, "upload-", ".tmp");
+        try (DigestInputStream in = new DigestInputStream(content, digest)) {
+            long size = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            return new StoredFile(temp, size, HexFormat.of().formatHex(digest.digest()));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    public StoredFile moveTo(StoredFile file, Path target) throws IOException {
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Files.move(file.path(), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new StoredFile(target, file.size(), file.checksum());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+
+    public record StoredFile(Path path, long size, String checksum) {
+    }
+}
@@ -1,47 +1,87 @@
 package ru.hogwarts.school.service;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
+import ru.hogwarts.school.cache.AvatarByteCache;
+import ru.hogwarts.school.dto.AvatarCacheStatsDto;
+import ru.hogwarts.school.dto.AvatarFileDto;
+import ru.hogwarts.school.dto.AvatarResponseDto;
+import ru.hogwarts.school.dto.ChangeEntity;
+import ru.hogwarts.school.dto.ChangeOperation;
+import ru.hogwarts.school.dto.CursorPage;
+import ru.hogwarts.school.feed.ChangeFeed;
+import ru.hogwarts.school.mapper.AvatarMapper;
+import ru.hogwarts.school.metrics.AvatarMetrics;
 import ru.hogwarts.school.model.Avatar;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.pagination.KeysetCursor;
+import ru.hogwarts.school.repository.AvatarBlobRepository;
 import ru.hogwarts.school.repository.AvatarRepository;
 import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.service.AvatarFileStorage.StoredFile;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.time.Instant;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Transactional
 public class AvatarService {
+    private static final Set<String> SORTS = Set.of("id", "fileSize");
+
     private final AvatarRepository avatarRepository;
+    private final AvatarBlobRepository blobRepository;
     private final StudentRepository studentRepository;
-
-    @Value("${avatars.dir.path}")
-    private String avatarsDir;
+    private final AvatarBlobStore blobStore;
+    private final AvatarThumbnailService thumbnailService;
+    private final AvatarByteCache byteCache;
+    private final AvatarMapper avatarMapper;
+    private final AvatarMetrics metrics;
+    private final ChangeFeed changeFeed;
 
     public AvatarService(AvatarRepository avatarRepository,
-                         StudentRepository studentRepository) {
+                         AvatarBlobRepository blobRepository,
+                         StudentRepository studentRepository,
+                         AvatarBlobStore blobStore,
+                         AvatarThumbnailService thumbnailService,
+                         AvatarByteCache byteCache,
+                         AvatarMapper avatarMapper,
+                         AvatarMetrics metrics,
+                         ChangeFeed changeFeed) {
         this.avatarRepository = avatarRepository;
+        this.blobRepository = blobRepository;
         this.studentRepository = studentRepository;
+        this.blobStore = blobStore;
+        this.thumbnailService = thumbnailService;
+        this.byteCache = byteCache;
+        this.avatarMapper = avatarMapper;
+        this.metrics = metrics;
+        this.changeFeed = changeFeed;
+    }
+
+    public AvatarResponseDto uploadAvatar(Long studentId, MultipartFile file) throws IOException {
+        return uploadAvatar(studentId, file.getContentType(), file);
     }
 
-    public Avatar uploadAvatar(Long studentId, MultipartFile file) throws IOException {
+    // Содержимое может прийти не только из запроса, но и из файла во временном каталоге фоновой загрузки
+    public AvatarResponseDto uploadAvatar(Long studentId, String contentType, InputStreamSource content)
+            throws IOException {
         // Проверка формата - только PNG
-        if (!"image/png".equals(file.getContentType())) {
+        if (!"image/png".equals(contentType)) {
             throw new ResponseStatusException(
                     HttpStatus.BAD_REQUEST,
-                    "Разрешены только PNG файлы. Получен: " + file.getContentType()
+                    "Разрешены только PNG файлы. Получен: " + contentType
             );
         }
 
@@ -51,35 +91,32 @@ public class AvatarService {
                         "Студент с ID " + studentId + " не найден"
                 ));
 
-        Optional<Avatar> existingAvatar = avatarRepository.findByStudentId(studentId);
-        if (existingAvatar.isPresent()) {
+        if (avatarRepository.existsByStudentId(studentId)) {
             throw new ResponseStatusException(
                     HttpStatus.CONFLICT,
                     "Аватар для студента " + studentId + " уже существует"
             );
         }
 
-        Path uploadDir = Paths.get(avatarsDir);
-        if (!Files.exists(uploadDir)) {
-            Files.createDirectories(uploadDir);
-        }
-
-        Path filePath = uploadDir.resolve(studentId + ".png");
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        StoredFile stored = store(content, "image/png");
 
         Avatar avatar = new Avatar();
-        avatar.setFilePath(filePath.toString());
-        avatar.setFileSize(file.getSize());
+        avatar.setFilePath(stored.path().toString());
+        avatar.setFileSize(stored.size());
         avatar.setMediaType("image/png");
-        avatar.setData(file.getBytes());
+        avatar.setBlob(blobRepository.getReferenceById(stored.checksum()));
+        avatar.setUpdatedAt(Instant.now());
         avatar.setStudent(student);
+        avatarRepository.save(avatar);
+        thumbnailService.generateAfterCommit(stored.checksum(), stored.path());
+        changeFeed.publishAfterCommit(ChangeEntity.AVATAR, studentId, avatar.getVersion(), ChangeOperation.CREATED);
 
-        return avatarRepository.save(avatar);
+        return avatarMapper.toDto(avatar);
     }
 
     @Transactional(readOnly = true)
-    public Avatar getAvatarByStudentId(Long studentId) {
-        return avatarRepository.findByStudentId(studentId)
+    public AvatarResponseDto getAvatarByStudentId(Long studentId) {
+        return avatarRepository.findResponseByStudentId(studentId)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND,
                         "Аватар для студента " + studentId + " не найден"
@@ -87,8 +124,17 @@ public class AvatarService {
     }
 
     @Transactional(readOnly = true)
-    public Avatar getAvatarById(Long avatarId) {
-        return avatarRepository.findById(avatarId)
+    public AvatarFileDto getAvatarFile(Long studentId) {
+        return avatarRepository.findFileByStudentId(studentId)
+                .orElseThrow(() -> new ResponseStatusException(
+                        HttpStatus.NOT_FOUND,
+                        "Аватар для студента " + studentId + " не найден"
+                ));
+    }
+
+    @Transactional(readOnly = true)
+    public AvatarResponseDto getAvatarById(Long avatarId) {
+        return avatarRepository.findResponseById(avatarId)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND,
                         "Аватар с ID " + avatarId + " не найден"
@@ -96,18 +142,37 @@ public class AvatarService {
     }
 
     @Transactional(readOnly = true)
-    public Page<Avatar> getAllAvatars(Pageable pageable) {
-        return avatarRepository.findAll(pageable);
+    public CursorPage<AvatarResponseDto> getAllAvatars(String cursor, int size, String sort, boolean withTotal) {
+        KeysetCursor.validate(sort, size, SORTS);
+        KeysetCursor after = KeysetCursor.decode(cursor, sort);
+        Limit limit = Limit.of(size + 1);
+
+        List<AvatarResponseDto> rows = switch (sort) {
+            case "fileSize" -> avatarRepository.findPageByFileSize(
+                    after != null ? after.longValue() : -1, after != null ? after.id() : 0, limit);
+            default -> avatarRepository.findPageById(after != null ? after.id() : 0, limit);
+        };
+        return KeysetCursor.toPage(rows, size,
+                a -> new KeysetCursor(sort, a.id(), "fileSize".equals(sort) ? String.valueOf(a.fileSize()) : null),
+                withTotal ? avatarRepository.count() : null);
     }
 
+    // Тот же keyset по (file_size, id), что и у сортировки fileSize: первая страница начинается сразу после minSize.
+    // Курсор не дальше minSize (например, подделанный) тоже начинает с первой страницы
     @Transactional(readOnly = true)
-    public List<Avatar> getAvatarsByFileSizeGreaterThan(long minSize) {
-        return avatarRepository.findAll().stream()
-                .filter(avatar -> avatar.getFileSize() > minSize)
-                .toList();
+    public CursorPage<AvatarResponseDto> getAvatarsByFileSizeGreaterThan(long minSize, String cursor, int size,
+                                                                        boolean withTotal) {
+        KeysetCursor.validate("fileSize", size, SORTS);
+        KeysetCursor after = KeysetCursor.decode(cursor, "fileSize");
+        boolean fromCursor = after != null && after.longValue() > minSize;
+        List<AvatarResponseDto> rows = avatarRepository.findPageByFileSize(
+                fromCursor ? after.longValue() : minSize, fromCursor ? after.id() : Long.MAX_VALUE, Limit.of(size + 1));
+        return KeysetCursor.toPage(rows, size,
+                a -> new KeysetCursor("fileSize", a.id(), String.valueOf(a.fileSize())),
+                withTotal ? avatarRepository.countByFileSizeGreaterThan(minSize) : null);
     }
 
-    public Avatar updateAvatar(Long studentId, MultipartFile file) throws IOException {
+    public AvatarResponseDto updateAvatar(Long studentId, MultipartFile file) throws IOException {
         if (!"image/png".equals(file.getContentType())) {
             throw new ResponseStatusException(
                     HttpStatus.BAD_REQUEST,
@@ -115,57 +180,52 @@ public class AvatarService {
             );
         }
 
-        Avatar existingAvatar = avatarRepository.findByStudentId(studentId)
+        AvatarFileDto existing = avatarRepository.findFileByStudentId(studentId)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND,
                         "Аватар для обновления не найден"
                 ));
 
-        Path filePath = Paths.get(existingAvatar.getFilePath());
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        StoredFile stored = store(file, existing.mediaType());
+        Instant updatedAt = Instant.now();
+        avatarRepository.updateBlob(existing.id(), blobRepository.getReferenceById(stored.checksum()),
+                stored.path().toString(), stored.size(), updatedAt);
+        blobStore.release(existing.checksum());
+        thumbnailService.generateAfterCommit(stored.checksum(), stored.path());
 
-        existingAvatar.setFileSize(file.getSize());
-        existingAvatar.setData(file.getBytes());
-
-        return avatarRepository.save(existingAvatar);
+        // Версию увеличивает сам UPDATE, поэтому ответ читается уже после него
+        AvatarResponseDto updated = avatarRepository.findResponseById(existing.id())
+                .orElseThrow(() -> new ResponseStatusException(
+                        HttpStatus.NOT_FOUND,
+                        "Аватар для обновления не найден"
+                ));
+        changeFeed.publishAfterCommit(ChangeEntity.AVATAR, studentId, updated.version(), ChangeOperation.UPDATED);
+        return updated;
     }
 
     public void deleteAvatarByStudentId(Long studentId) {
-        Avatar avatar = avatarRepository.findByStudentId(studentId)
+        AvatarFileDto avatar = avatarRepository.findFileByStudentId(studentId)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND,
                         "Аватар для удаления не найден"
                 ));
 
-        try {
-            Files.deleteIfExists(Paths.get(avatar.getFilePath()));
-        } catch (IOException e) {
-            throw new ResponseStatusException(
-                    HttpStatus.INTERNAL_SERVER_ERROR,
-                    "Ошибка при удалении файла аватара"
-            );
-        }
-
-        avatarRepository.delete(avatar);
+        // Файл общий для одинаковых аватаров: его удалит сборщик, когда ссылок не останется
+        avatarRepository.deleteById(avatar.id());
+        blobStore.release(avatar.checksum());
+        changeFeed.publishAfterCommit(ChangeEntity.AVATAR, studentId, null, ChangeOperation.DELETED);
     }
 
     public void deleteAvatarById(Long avatarId) {
-        Avatar avatar = avatarRepository.findById(avatarId)
+        AvatarFileDto avatar = avatarRepository.findFileById(avatarId)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND,
                         "Аватар с ID " + avatarId + " не найден"
                 ));
 
-        try {
-            Files.deleteIfExists(Paths.get(avatar.getFilePath()));
-        } catch (IOException e) {
-            throw new ResponseStatusException(
-                    HttpStatus.INTERNAL_SERVER_ERROR,
-                    "Ошибка при удалении файла аватара"
-            );
-        }
-
-        avatarRepository.delete(avatar);
+        avatarRepository.deleteById(avatar.id());
+        blobStore.release(avatar.checksum());
+        changeFeed.publishAfterCommit(ChangeEntity.AVATAR, avatar.studentId(), null, ChangeOperation.DELETED);
     }
 
     @Transactional(readOnly = true)
@@ -178,11 +238,65 @@ public class AvatarService {
         return avatarRepository.count();
     }
 
+    @Transactional(readOnly = true)
     public byte[] getAvatarData(Long studentId) {
-        return getAvatarByStudentId(studentId).getData();
+        return getAvatarData(getAvatarFile(studentId));
+    }
+
+    @Transactional(readOnly = true)
+    public byte[] getAvatarData(AvatarFileDto avatarFile) {
+        return readFromDb(avatarFile.checksum());
+    }
+
+    // Горячие аватары отдаются из off-heap кеша без обращения к БД
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void writeAvatarData(AvatarFileDto avatarFile, OutputStream out) throws IOException {
+        String hash = avatarFile.checksum();
+        long started = System.nanoTime();
+        try (AvatarByteCache.Handle cached = byteCache.get(hash)) {
+            if (cached != null) {
+                cached.writeTo(out);
+                metrics.recordRead("cache", cached.length(), System.nanoTime() - started);
+                return;
+            }
+        }
+        byte[] data = readFromDb(hash);
+        byteCache.put(hash, data);
+        out.write(data);
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void writeFile(Path path, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        long size = Files.copy(path, out);
+        metrics.recordRead("disk", size, System.nanoTime() - started);
+    }
+
+    public AvatarCacheStatsDto getCacheStats() {
+        return byteCache.getStats();
+    }
+
+    public Path getAvatarVariant(AvatarFileDto avatarFile, int size) {
+        return thumbnailService.getVariant(avatarFile.checksum(), Paths.get(avatarFile.filePath()), size);
+    }
+
+    @Transactional(readOnly = true)
     public Path getAvatarPath(Long studentId) {
-        return Paths.get(getAvatarByStudentId(studentId).getFilePath());
+        return Paths.get(getAvatarFile(studentId).filePath());
+    }
+
+    // Время включает чтение потока загрузки и запись во временный файл хранилища блобов
+    private StoredFile store(InputStreamSource content, String mediaType) throws IOException {
+        long started = System.nanoTime();
+        StoredFile stored = blobStore.acquire(content.getInputStream(), mediaType);
+        metrics.recordWrite(stored.size(), System.nanoTime() - started);
+        return stored;
+    }
+
+    private byte[] readFromDb(String hash) {
+        long started = System.nanoTime();
+        byte[] data = blobStore.readData(hash);
+        metrics.recordRead("db", data.length, System.nanoTime() - started);
+        return data;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,204 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class AvatarThumbnailService {
+    private static final Logger log = LoggerFactory.getLogger(AvatarThumbnailService.class);
+
+    private final List<Integer> sizes;
+    private final int maxDimension;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentMap<Path, CompletableFuture<Path>> inProgress = new ConcurrentHashMap<>();
+
+    public AvatarThumbnailService(@Value("${avatars.thumbnails.sizes:64,128,256}") List<Integer> sizes,
+                                  @Value("${avatars.thumbnails.pool-size:2}") int poolSize,
+                                  @Value("${avatars.thumbnails.queue-capacity:100}") int queueCapacity,
+                                  @Value("${avatars.thumbnails.max-dimension:4096}") int maxDimension) {
+        this.sizes = List.copyOf(sizes);
+        this.maxDimension = maxDimension;
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Очередь ограничена: при переполнении варианты будут созданы по первому запросу
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "avatar-thumbnails-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> log.debug("Очередь миниатюр заполнена, задача отброшена"));
+    }
+
+    public List<Integer> getSizes() {
+        return sizes;
+    }
+
+    public void generateAfterCommit(String hash, Path original) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            generateAsync(hash, original);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                generateAsync(hash, original);
+            }
+        });
+    }
+
+    public void generateAsync(String hash, Path original) {
+        executor.execute(() -> {
+            for (int size : sizes) {
+                try {
+                    getVariant(hash, original, size);
+                } catch (RuntimeException e) {
+                    log.warn("Не удалось создать миниатюру {}px для {}", size, original, e);
+                }
+            }
+        });
+    }
+
+    public Path getVariant(String hash, Path original, int size) {
+        if (!sizes.contains(size)) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Недопустимый размер миниатюры: " + size + ". Доступны: " + sizes
+            );
+        }
+
+        Path variant = variantPath(hash, original, size);
+        if (Files.exists(variant)) {
+            return variant;
+        }
+
+        // Параллельные запросы одного варианта ждут единственную генерацию
+        CompletableFuture<Path> created = new CompletableFuture<>();
+        CompletableFuture<Path> running = inProgress.putIfAbsent(variant, created);
+        if (running != null) {
+            return running.join();
+        }
+        try {
+            created.complete(render(original, variant, size));
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inProgress.remove(variant);
+        }
+        return created.join();
+    }
+
+    public void deleteVariants(String hash, Path original) {
+        for (int size : sizes) {
+            try {
+                Files.deleteIfExists(variantPath(hash, original, size));
+            } catch (IOException e) {
+                log.warn("Не удалось удалить миниатюру {}px для {}", size, original, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Path render(Path original, Path variant, int size) {
+        try {
+            if (Files.exists(variant)) {
+                return variant;
+            }
+            Path temp = Files.createTempFile(variant.getParent(), "thumb-", ".tmp");
+            try {
+                writeVariant(original, temp, size);
+                Files.move(temp, variant, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            return variant;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Размеры читаются из заголовка до декодирования: маленький PNG может разворачиваться в гигабайты пикселей
+    private void writeVariant(Path original, Path target, int size) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : Collections.emptyIterator();
+            if (!readers.hasNext()) {
+                throw new ResponseStatusException(
+                        HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Файл аватара не является изображением"
+                );
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (width > maxDimension || height > maxDimension) {
+                    throw new ResponseStatusException(
+                            HttpStatus.UNPROCESSABLE_ENTITY,
+                            "Изображение " + width + "x" + height + " слишком велико, допустимо не более "
+                                    + maxDimension + " пикселей по стороне"
+                    );
+                }
+
+                double scale = (double) size / Math.max(width, height);
+                if (scale >= 1.0) {
+                    // Оригинал не больше запрошенного размера: перекодировать нечего
+                    Files.copy(original, target, StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    ImageIO.write(scale(reader.read(0), scale), "png", target.toFile());
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, double scale) {
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static Path variantPath(String hash, Path original, int size) {
+        return original.resolveSibling(hash + "_" + size + ".png");
+    }
+}
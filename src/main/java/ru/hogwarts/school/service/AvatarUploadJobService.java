@@ -0,0 +1,215 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.PathResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import ru.hogwarts.school.dto.AvatarJobDto;
+import ru.hogwarts.school.dto.AvatarJobStatus;
+import ru.hogwarts.school.dto.AvatarResponseDto;
+import ru.hogwarts.school.metrics.AvatarMetrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Фоновая загрузка аватаров: запрос только сохраняет файл во временный каталог и сразу получает 202 с id задачи,
+// проверка, запись блоба и сохранение в БД идут в ограниченном пуле воркеров
+@Service
+public class AvatarUploadJobService {
+    private static final Logger log = LoggerFactory.getLogger(AvatarUploadJobService.class);
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private final AvatarService avatarService;
+    private final AvatarMetrics metrics;
+    private final Path stagingDir;
+    private final Duration retention;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentMap<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public AvatarUploadJobService(AvatarService avatarService,
+                                  AvatarMetrics metrics,
+                                  @Value("${avatars.dir.path}") String avatarsDir,
+                                  @Value("${avatars.jobs.pool-size:2}") int poolSize,
+                                  @Value("${avatars.jobs.queue-capacity:100}") int queueCapacity,
+                                  @Value("${avatars.jobs.retention:PT1H}") Duration retention) {
+        this.avatarService = avatarService;
+        this.metrics = metrics;
+        this.stagingDir = Paths.get(avatarsDir, "staging");
+        this.retention = retention;
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Очередь ограничена: при переполнении загрузка отклоняется с 503, а не копится на диске
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "avatar-uploads-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        metrics.monitorUploads(executor);
+    }
+
+    // Задачи живут только в памяти, поэтому оставшиеся после прошлого запуска файлы никому не нужны
+    @PostConstruct
+    public void cleanStaging() throws IOException {
+        Files.createDirectories(stagingDir);
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(stagingDir)) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+    }
+
+    public AvatarJobDto submit(Long studentId, MultipartFile file) throws IOException {
+        Path staged = Files.createTempFile(stagingDir, "upload-", ".tmp");
+        try {
+            file.transferTo(staged);
+        } catch (IOException e) {
+            Files.deleteIfExists(staged);
+            throw e;
+        }
+
+        Job job = new Job(UUID.randomUUID().toString(), studentId, file.getContentType(), staged);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> process(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            Files.deleteIfExists(staged);
+            metrics.recordUploadJob("rejected");
+            throw new ResponseStatusException(
+                    HttpStatus.SERVICE_UNAVAILABLE,
+                    "Очередь загрузки аватаров заполнена, повторите позже"
+            );
+        }
+        return job.toDto();
+    }
+
+    public AvatarJobDto getJob(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.NOT_FOUND,
+                    "Задача загрузки " + jobId + " не найдена"
+            );
+        }
+        return job.toDto();
+    }
+
+    @Scheduled(fixedDelayString = "${avatars.jobs.cleanup-interval:PT1M}")
+    public void evictFinished() {
+        Instant threshold = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedBefore(threshold));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void process(Job job) {
+        try {
+            job.advance(AvatarJobStatus.VALIDATING);
+            validate(job);
+            job.advance(AvatarJobStatus.STORING);
+            job.complete(avatarService.uploadAvatar(job.studentId, job.contentType, new PathResource(job.staged)));
+            metrics.recordUploadJob("done");
+        } catch (ResponseStatusException e) {
+            job.fail(e.getStatusCode().value(), e.getReason());
+            metrics.recordUploadJob("failed");
+        } catch (IOException | RuntimeException e) {
+            log.warn("Не удалось обработать загрузку аватара {} для студента {}", job.id, job.studentId, e);
+            job.fail(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Ошибка обработки файла");
+            metrics.recordUploadJob("failed");
+        } finally {
+            try {
+                Files.deleteIfExists(job.staged);
+            } catch (IOException e) {
+                log.warn("Не удалось удалить временный файл {}", job.staged, e);
+            }
+        }
+    }
+
+    // Заголовок Content-Type задаёт клиент, поэтому PNG проверяется и по сигнатуре файла
+    private static void validate(Job job) throws IOException {
+        if (!"image/png".equals(job.contentType)) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Разрешены только PNG файлы. Получен: " + job.contentType
+            );
+        }
+        byte[] header;
+        try (InputStream in = Files.newInputStream(job.staged)) {
+            header = in.readNBytes(PNG_SIGNATURE.length);
+        }
+        if (!Arrays.equals(header, PNG_SIGNATURE)) {
+            throw new ResponseStatusException(
+                    HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Файл не является PNG изображением"
+            );
+        }
+    }
+
+    private static final class Job {
+        private final String id;
+        private final Long studentId;
+        private final String contentType;
+        private final Path staged;
+        private final Instant createdAt = Instant.now();
+        private volatile AvatarJobStatus status = AvatarJobStatus.QUEUED;
+        private volatile AvatarResponseDto avatar;
+        private volatile Integer errorStatus;
+        private volatile String error;
+        private volatile Instant updatedAt = createdAt;
+
+        private Job(String id, Long studentId, String contentType, Path staged) {
+            this.id = id;
+            this.studentId = studentId;
+            this.contentType = contentType;
+            this.staged = staged;
+        }
+
+        private void advance(AvatarJobStatus next) {
+            updatedAt = Instant.now();
+            status = next;
+        }
+
+        private void complete(AvatarResponseDto result) {
+            avatar = result;
+            advance(AvatarJobStatus.DONE);
+        }
+
+        private void fail(int httpStatus, String message) {
+            errorStatus = httpStatus;
+            error = message;
+            advance(AvatarJobStatus.FAILED);
+        }
+
+        private boolean finishedBefore(Instant threshold) {
+            return (status == AvatarJobStatus.DONE || status == AvatarJobStatus.FAILED)
+                    && updatedAt.isBefore(threshold);
+        }
+
+        // Статус пишется последним и читается первым: увидев DONE или FAILED, видим и результат
+        private AvatarJobDto toDto() {
+            AvatarJobStatus current = status;
+            return new AvatarJobDto(id, studentId, current, avatar, errorStatus, error, createdAt, updatedAt);
+        }
+    }
+}
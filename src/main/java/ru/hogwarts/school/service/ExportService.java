@@ -0,0 +1,62 @@
+package ru.hogwarts.school.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.dto.FacultyExportDto;
+import ru.hogwarts.school.dto.StudentResponseDto;
+import ru.hogwarts.school.export.ExportFormat;
+import ru.hogwarts.school.export.RowWriter;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Выгрузки читают строки курсором в read-only транзакции, которая держится, пока пишется ответ
+@Service
+@Transactional(readOnly = true)
+public class ExportService {
+    private static final List<String> STUDENT_HEADER = List.of("id", "name", "age", "facultyId");
+    private static final List<String> FACULTY_HEADER = List.of("id", "name", "color");
+
+    private final StudentRepository studentRepository;
+    private final FacultyRepository facultyRepository;
+    private final ObjectMapper objectMapper;
+
+    public ExportService(StudentRepository studentRepository,
+                         FacultyRepository facultyRepository,
+                         ObjectMapper objectMapper) {
+        this.studentRepository = studentRepository;
+        this.facultyRepository = facultyRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public void exportStudents(ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<StudentResponseDto> students = studentRepository.streamAllDtos()) {
+            studentWriter(format, out).writeAll(students);
+        }
+    }
+
+    public void exportFacultyStudents(Long facultyId, ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<StudentResponseDto> students = studentRepository.streamDtosByFacultyId(facultyId)) {
+            studentWriter(format, out).writeAll(students);
+        }
+    }
+
+    public void exportFaculties(ExportFormat format, OutputStream out) throws IOException {
+        try (Stream<FacultyExportDto> faculties = facultyRepository.streamAllForExport()) {
+            new RowWriter<>(out, format, objectMapper.writerFor(FacultyExportDto.class), FACULTY_HEADER,
+                    (FacultyExportDto f) -> Arrays.asList(f.id(), f.name(), f.color()))
+                    .writeAll(faculties);
+        }
+    }
+
+    private RowWriter<StudentResponseDto> studentWriter(ExportFormat format, OutputStream out) {
+        return new RowWriter<>(out, format, objectMapper.writerFor(StudentResponseDto.class), STUDENT_HEADER,
+                s -> Arrays.asList(s.id(), s.name(), s.age(), s.facultyId()));
+    }
+}
@@ -1,40 +1,76 @@
 package ru.hogwarts.school.service;
 
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import ru.hogwarts.school.cache.DtoCaches;
+import ru.hogwarts.school.dto.ChangeEntity;
+import ru.hogwarts.school.dto.ChangeOperation;
+import ru.hogwarts.school.dto.CursorPage;
 import ru.hogwarts.school.dto.FacultyRequestDto;
 import ru.hogwarts.school.dto.FacultyResponseDto;
+import ru.hogwarts.school.dto.FacultyStudentIdDto;
 import ru.hogwarts.school.dto.StudentResponseDto;
 import ru.hogwarts.school.exceptions.FacultyNotFoundException;
+import ru.hogwarts.school.feed.ChangeFeed;
 import ru.hogwarts.school.mapper.FacultyMapper;
 import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.pagination.KeysetCursor;
 import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.search.FacultySearchIndex;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class FacultyService {
+    private static final Set<String> SORTS = Set.of("id", "name");
+
     private final FacultyRepository facultyRepository;
+    private final StudentRepository studentRepository;
     private final FacultyMapper mapper;
+    private final DtoCaches caches;
+    private final FacultyStatsService statsService;
+    private final FacultySearchIndex searchIndex;
+    private final ChangeFeed changeFeed;
 
     public FacultyService(FacultyRepository facultyRepository,
-                          FacultyMapper mapper) {
+                          StudentRepository studentRepository,
+                          FacultyMapper mapper,
+                          DtoCaches caches,
+                          FacultyStatsService statsService,
+                          FacultySearchIndex searchIndex,
+                          ChangeFeed changeFeed) {
         this.facultyRepository = facultyRepository;
+        this.studentRepository = studentRepository;
         this.mapper = mapper;
+        this.caches = caches;
+        this.statsService = statsService;
+        this.searchIndex = searchIndex;
+        this.changeFeed = changeFeed;
     }
 
     public FacultyResponseDto create(FacultyRequestDto dto) {
         Faculty faculty = mapper.toEntity(dto);
         Faculty saved = facultyRepository.save(faculty);
-        return mapper.toDto(saved);
+        statsService.facultyCreated(saved.getId());
+        searchIndex.indexAfterCommit(saved.getId(), saved.getName(), saved.getColor());
+        changeFeed.publishAfterCommit(ChangeEntity.FACULTY, saved.getId(), saved.getVersion(), ChangeOperation.CREATED);
+        return mapper.toDto(saved, List.of());
     }
 
+    // Без транзакции: попадание в кеш не должно занимать соединение из пула
+    @Transactional(Transactional.TxType.SUPPORTS)
     public FacultyResponseDto read(Long id) {
-        return facultyRepository.findById(id)
-                .map(mapper::toDto)
-                .orElseThrow(() -> new FacultyNotFoundException(id));
+        return caches.getFaculty(id, key -> facultyRepository.findById(key)
+                .map(this::toDto)
+                .orElseThrow(() -> new FacultyNotFoundException(key)));
     }
 
     public FacultyResponseDto update(Long id, FacultyRequestDto dto) {
@@ -44,35 +80,81 @@ public class FacultyService {
         existing.setName(dto.getName());
         existing.setColor(dto.getColor());
 
-        return mapper.toDto(facultyRepository.save(existing));
+        // Сброс сразу, чтобы в ленту изменений попала уже увеличенная версия
+        Faculty saved = facultyRepository.saveAndFlush(existing);
+        FacultyResponseDto updated = toDto(saved);
+        caches.evictFacultiesAfterCommit(List.of(id));
+        searchIndex.indexAfterCommit(id, updated.name(), updated.color());
+        changeFeed.publishAfterCommit(ChangeEntity.FACULTY, id, saved.getVersion(), ChangeOperation.UPDATED);
+        return updated;
     }
 
     public void delete(Long id) {
         facultyRepository.deleteById(id);
+        searchIndex.removeAfterCommit(id);
+        caches.evictFacultiesAfterCommit(List.of(id));
+        caches.evictStudentsOfFacultyAfterCommit(id);
+        changeFeed.publishAfterCommit(ChangeEntity.FACULTY, id, null, ChangeOperation.DELETED);
     }
 
-    public List<FacultyResponseDto> getAll() {
-        return facultyRepository.findAll().stream()
-                .map(mapper::toDto)
-                .collect(Collectors.toList());
+    public CursorPage<FacultyResponseDto> getAll(String cursor, int size, String sort, boolean withTotal) {
+        KeysetCursor.validate(sort, size, SORTS);
+        KeysetCursor after = KeysetCursor.decode(cursor, sort);
+
+        List<Faculty> rows = "name".equals(sort)
+                ? KeysetCursor.nullsLast(after, size + 1,
+                        facultyRepository::findFirstPageByName,
+                        (c, l) -> facultyRepository.findPageByName(c.value(), c.id(), l),
+                        facultyRepository::findPageWithoutName)
+                : facultyRepository.findPageById(after != null ? after.id() : 0, Limit.of(size + 1));
+        // В DTO превращается только отдаваемая страница, без строки-признака следующей
+        CursorPage<Faculty> page = KeysetCursor.toPage(rows, size,
+                f -> new KeysetCursor(sort, f.getId(), "name".equals(sort) ? f.getName() : null),
+                withTotal ? facultyRepository.count() : null);
+        return new CursorPage<>(toDtos(page.content()), page.nextCursor(), page.totalElements());
     }
 
+    // Id подбираются по индексу в памяти, DTO берутся из кеша; в БД уходят только промахи, одним запросом
+    @Transactional(Transactional.TxType.SUPPORTS)
     public List<FacultyResponseDto> findByNameOrColor(String query) {
-        return facultyRepository.findByNameOrColorIgnoreCase(query).stream()
-                .map(mapper::toDto)
-                .collect(Collectors.toList());
+        List<Long> ids = searchIndex.search(query);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, FacultyResponseDto> found = caches.getFaculties(ids, missing ->
+                toDtos(facultyRepository.findAllById(List.copyOf(missing))).stream()
+                        .collect(Collectors.toMap(FacultyResponseDto::id, Function.identity())));
+        return ids.stream().map(found::get).filter(Objects::nonNull).toList();
     }
 
     public List<StudentResponseDto> getStudentsByFacultyId(Long facultyId) {
-        Faculty faculty = facultyRepository.findById(facultyId)
-                .orElseThrow(() -> new FacultyNotFoundException(facultyId));
-
-        return faculty.getStudents().stream()
-                .map(s -> new StudentResponseDto(
-                        s.getId(),
-                        s.getName(),
-                        s.getAge(),
-                        facultyId))
-                .collect(Collectors.toList());
+        if (!facultyRepository.existsById(facultyId)) {
+            throw new FacultyNotFoundException(facultyId);
+        }
+        return studentRepository.findDtosByFacultyId(facultyId);
+    }
+
+    public void checkExists(Long facultyId) {
+        if (!facultyRepository.existsById(facultyId)) {
+            throw new FacultyNotFoundException(facultyId);
+        }
+    }
+
+    private FacultyResponseDto toDto(Faculty faculty) {
+        return toDtos(List.of(faculty)).get(0);
+    }
+
+    // Один запрос за id студентов на весь список, сколько бы факультетов в нём ни было
+    private List<FacultyResponseDto> toDtos(List<Faculty> faculties) {
+        if (faculties.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<Long>> studentIds = studentRepository.findIdsByFacultyIds(
+                        faculties.stream().map(Faculty::getId).toList()).stream()
+                .collect(Collectors.groupingBy(FacultyStudentIdDto::facultyId,
+                        Collectors.mapping(FacultyStudentIdDto::studentId, Collectors.toList())));
+        return faculties.stream()
+                .map(f -> mapper.toDto(f, studentIds.getOrDefault(f.getId(), List.of())))
+                .toList();
     }
 }
\ No newline at end of file
@@ -0,0 +1,100 @@
+package ru.hogwarts.school.service;
+
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import ru.hogwarts.school.dto.FacultyStatsDto;
+import ru.hogwarts.school.dto.StudentRequestDto;
+import ru.hogwarts.school.repository.FacultyStatsRepository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@Service
+@Transactional
+public class FacultyStatsService {
+    private static final Logger log = LoggerFactory.getLogger(FacultyStatsService.class);
+
+    private final FacultyStatsRepository repository;
+
+    public FacultyStatsService(FacultyStatsRepository repository) {
+        this.repository = repository;
+    }
+
+    // Строки для факультетов, созданных до появления сводки
+    @EventListener(ApplicationReadyEvent.class)
+    public void insertMissing() {
+        int inserted = repository.insertMissing();
+        if (inserted > 0) {
+            log.info("Сводка faculty_stats дополнена для {} факультетов", inserted);
+        }
+    }
+
+    public List<FacultyStatsDto> getAll() {
+        return repository.findAllDtos();
+    }
+
+    public List<FacultyStatsDto> rebuild() {
+        repository.lockStudents();
+        repository.rebuildAll();
+        return repository.findAllDtos();
+    }
+
+    // Дельты пишутся в транзакции, изменившей студентов, и откатываются вместе с ней
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void facultyCreated(Long facultyId) {
+        apply(facultyId, 0, 0);
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void studentAdded(Long facultyId, int age) {
+        if (facultyId != null) {
+            apply(facultyId, 1, age);
+        }
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void studentRemoved(Long facultyId, int age) {
+        if (facultyId != null) {
+            apply(facultyId, -1, -age);
+        }
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void studentChanged(Long previousFacultyId, int previousAge, Long facultyId, int age) {
+        if (Objects.equals(previousFacultyId, facultyId)) {
+            if (facultyId != null && previousAge != age) {
+                apply(facultyId, 0, age - previousAge);
+            }
+            return;
+        }
+        studentRemoved(previousFacultyId, previousAge);
+        studentAdded(facultyId, age);
+    }
+
+    // Одна upsert-операция на факультет, а не на студента пачки
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void studentsAdded(List<StudentRequestDto> students) {
+        Map<Long, long[]> deltas = new HashMap<>();
+        for (StudentRequestDto student : students) {
+            if (student.getFacultyId() != null) {
+                long[] delta = deltas.computeIfAbsent(student.getFacultyId(), id -> new long[2]);
+                delta[0]++;
+                delta[1] += student.getAge();
+            }
+        }
+        deltas.forEach((facultyId, delta) -> apply(facultyId, delta[0], delta[1]));
+    }
+
+    // min/max нельзя считать в том же операторе, что и дельту: его снимок сделан до ожидания блокировки
+    // строки, и параллельно добавленный студент потерялся бы до ручного rebuild
+    private void apply(long facultyId, long countDelta, long ageSumDelta) {
+        repository.applyDelta(facultyId, countDelta, ageSumDelta);
+        repository.refreshAgeRange(facultyId);
+    }
+}
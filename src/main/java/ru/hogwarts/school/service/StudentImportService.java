@@ -0,0 +1,268 @@
+package ru.hogwarts.school.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.cache.DtoCaches;
+import ru.hogwarts.school.dto.ChangeEntity;
+import ru.hogwarts.school.dto.ChangeOperation;
+import ru.hogwarts.school.dto.StudentAgeDto;
+import ru.hogwarts.school.dto.StudentImportErrorDto;
+import ru.hogwarts.school.dto.StudentImportReportDto;
+import ru.hogwarts.school.dto.StudentNameDto;
+import ru.hogwarts.school.dto.StudentRequestDto;
+import ru.hogwarts.school.dto.StudentResponseDto;
+import ru.hogwarts.school.feed.ChangeFeed;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentBatchRepository;
+import ru.hogwarts.school.search.StudentAgeIndex;
+import ru.hogwarts.school.search.StudentNameIndex;
+import ru.hogwarts.school.stats.StudentStatistics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Service
+public class StudentImportService {
+    static final int CHUNK_SIZE = 1000;
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final StudentBatchRepository batchRepository;
+    private final FacultyRepository facultyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final DtoCaches caches;
+    private final StudentStatistics statistics;
+    private final FacultyStatsService facultyStatsService;
+    private final StudentNameIndex nameIndex;
+    private final StudentAgeIndex ageIndex;
+    private final ChangeFeed changeFeed;
+
+    public StudentImportService(StudentBatchRepository batchRepository,
+                                FacultyRepository facultyRepository,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                DtoCaches caches,
+                                StudentStatistics statistics,
+                                FacultyStatsService facultyStatsService,
+                                StudentNameIndex nameIndex,
+                                StudentAgeIndex ageIndex,
+                                ChangeFeed changeFeed) {
+        this.batchRepository = batchRepository;
+        this.facultyRepository = facultyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.caches = caches;
+        this.statistics = statistics;
+        this.facultyStatsService = facultyStatsService;
+        this.nameIndex = nameIndex;
+        this.ageIndex = ageIndex;
+        this.changeFeed = changeFeed;
+    }
+
+    // Формат: name,age,facultyId; строка заголовка необязательна, facultyId может быть пустым
+    public StudentImportReportDto importCsv(InputStream in) throws IOException {
+        return importLines(in, (line, lineNumber) -> {
+            if (lineNumber == 1 && line.replace(" ", "").equalsIgnoreCase("name,age,facultyId")) {
+                return null;
+            }
+            List<String> fields = parseCsvLine(line);
+            if (fields.size() < 2 || fields.size() > 3) {
+                throw new IllegalArgumentException("Ожидается 2 или 3 поля, получено " + fields.size());
+            }
+            StudentRequestDto dto = new StudentRequestDto();
+            dto.setName(fields.get(0).trim());
+            dto.setAge(parseAge(fields.get(1)));
+            if (fields.size() == 3 && !fields.get(2).isBlank()) {
+                dto.setFacultyId(parseNumber(fields.get(2), "ID факультета"));
+            }
+            return dto;
+        });
+    }
+
+    public StudentImportReportDto importNdjson(InputStream in) throws IOException {
+        return importLines(in, (line, lineNumber) -> {
+            try {
+                return objectMapper.readValue(line, StudentRequestDto.class);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Некорректный JSON: " + e.getOriginalMessage());
+            }
+        });
+    }
+
+    // Тело читается построчно и пишется пачками по CHUNK_SIZE, каждая пачка - в своей транзакции
+    private StudentImportReportDto importLines(InputStream in, LineParser parser) throws IOException {
+        Set<Long> facultyIds = new HashSet<>(facultyRepository.findAllIds());
+        Report report = new Report();
+        List<Row> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            StudentRequestDto dto;
+            try {
+                dto = parser.parse(line, lineNumber);
+                if (dto == null) {
+                    continue;
+                }
+                validate(dto, facultyIds);
+            } catch (IllegalArgumentException e) {
+                report.total++;
+                report.fail(lineNumber, e.getMessage());
+                continue;
+            }
+            report.total++;
+            chunk.add(new Row(lineNumber, dto));
+            if (chunk.size() == CHUNK_SIZE) {
+                flush(chunk, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            flush(chunk, report);
+        }
+        return report.toDto();
+    }
+
+    private void flush(List<Row> rows, Report report) {
+        List<StudentRequestDto> students = rows.stream().map(Row::student).toList();
+        List<Long> ids;
+        try {
+            ids = transactionTemplate.execute(status -> {
+                List<Long> reserved = batchRepository.reserveIds(students.size());
+                batchRepository.insertAll(reserved, students);
+                facultyStatsService.studentsAdded(students);
+                return reserved;
+            });
+        } catch (DataAccessException e) {
+            if (rows.size() == 1) {
+                report.fail(rows.get(0).line(), "Ошибка записи в БД: " + e.getMostSpecificCause().getMessage());
+                return;
+            }
+            // Пачка откатилась целиком: половины пишутся заново, пока ошибка не сузится до конкретных строк.
+            // Остальные строки импортируются, а отчёт называет только виновные
+            int middle = rows.size() / 2;
+            flush(rows.subList(0, middle), report);
+            flush(rows.subList(middle, rows.size()), report);
+            return;
+        }
+
+        report.imported += students.size();
+        // Пачка уже закоммичена, поэтому списки studentIds её факультетов сбрасываются сразу
+        caches.evictFacultiesAfterCommit(students.stream().map(StudentRequestDto::getFacultyId).toList());
+        List<StudentResponseDto> created = new ArrayList<>(students.size());
+        for (int i = 0; i < students.size(); i++) {
+            StudentRequestDto dto = students.get(i);
+            created.add(new StudentResponseDto(ids.get(i), dto.getName(), dto.getAge(), dto.getFacultyId()));
+        }
+        statistics.onImported(created);
+        nameIndex.addAll(created.stream().map(s -> new StudentNameDto(s.id(), s.name())).toList());
+        ageIndex.addAll(created.stream().map(s -> new StudentAgeDto(s.id(), s.age())).toList());
+        // Версия новых строк - значение по умолчанию столбца
+        changeFeed.publish(ChangeEntity.STUDENT, ids, 0L, ChangeOperation.CREATED);
+    }
+
+    private static void validate(StudentRequestDto dto, Set<Long> facultyIds) {
+        String name = dto.getName();
+        if (name == null || name.isBlank() || name.length() < 2 || name.length() > 50) {
+            throw new IllegalArgumentException("Имя должно содержать от 2 до 50 символов");
+        }
+        if (dto.getAge() < 11 || dto.getAge() > 25) {
+            throw new IllegalArgumentException("Возраст должен быть от 11 до 25, получено " + dto.getAge());
+        }
+        if (dto.getFacultyId() != null && !facultyIds.contains(dto.getFacultyId())) {
+            throw new IllegalArgumentException("Факультет с ID:" + dto.getFacultyId() + " не найден.");
+        }
+    }
+
+    // Без сужения long до int: 4294967307 превратился бы в 11 и прошёл бы проверку диапазона
+    private static int parseAge(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное значение поля возраст: " + value);
+        }
+    }
+
+    private static Long parseNumber(String value, String field) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное значение поля " + field + ": " + value);
+        }
+    }
+
+    // Поля в двойных кавычках могут содержать запятые, кавычка внутри экранируется удвоением
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Незакрытая кавычка");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    @FunctionalInterface
+    private interface LineParser {
+        StudentRequestDto parse(String line, long lineNumber);
+    }
+
+    private record Row(long line, StudentRequestDto student) {
+    }
+
+    // В отчёт попадают первые MAX_REPORTED_ERRORS ошибок, остальные только считаются
+    private static final class Report {
+        private long total;
+        private long imported;
+        private long failed;
+        private final List<StudentImportErrorDto> errors = new ArrayList<>();
+
+        private void fail(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new StudentImportErrorDto(line, message));
+            }
+        }
+
+        private StudentImportReportDto toDto() {
+            return new StudentImportReportDto(total, imported, failed, errors);
+        }
+    }
+}
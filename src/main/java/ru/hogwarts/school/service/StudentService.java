@@ -1,35 +1,72 @@
 package ru.hogwarts.school.service;
 
 import jakarta.transaction.Transactional;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import ru.hogwarts.school.cache.DtoCaches;
+import ru.hogwarts.school.dto.ChangeEntity;
+import ru.hogwarts.school.dto.ChangeOperation;
+import ru.hogwarts.school.dto.CursorPage;
 import ru.hogwarts.school.dto.FacultyResponseDto;
+import ru.hogwarts.school.dto.StudentAgeDto;
 import ru.hogwarts.school.dto.StudentRequestDto;
+import ru.hogwarts.school.dto.StudentNameDto;
 import ru.hogwarts.school.dto.StudentResponseDto;
+import ru.hogwarts.school.dto.StudentStatsDto;
 import ru.hogwarts.school.exceptions.FacultyNotFoundException;
+import ru.hogwarts.school.exceptions.InvalidPageRequestException;
+import ru.hogwarts.school.feed.ChangeFeed;
 import ru.hogwarts.school.mapper.StudentMapper;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.pagination.KeysetCursor;
 import ru.hogwarts.school.repository.AvatarRepository;
 import ru.hogwarts.school.repository.FacultyRepository;
 import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.search.StudentAgeIndex;
+import ru.hogwarts.school.search.StudentNameIndex;
+import ru.hogwarts.school.stats.StudentStatistics;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class StudentService {
+    private static final Set<String> SORTS = Set.of("id", "name", "age");
+    private static final Set<String> AGE_SORT = Set.of("age");
+
     private final StudentRepository studentRepository;
     private final FacultyRepository facultyRepository;
     private final AvatarRepository avatarRepository;
+    private final AvatarBlobStore avatarBlobStore;
     private final StudentMapper mapper;
+    private final FacultyService facultyService;
+    private final DtoCaches caches;
+    private final StudentStatistics statistics;
+    private final FacultyStatsService facultyStatsService;
+    private final StudentNameIndex nameIndex;
+    private final StudentAgeIndex ageIndex;
+    private final ChangeFeed changeFeed;
 
-    public StudentService(StudentRepository repository, FacultyRepository facultyRepository, AvatarRepository avatarRepository, StudentMapper mapper) {
+    public StudentService(StudentRepository repository, FacultyRepository facultyRepository, AvatarRepository avatarRepository, AvatarBlobStore avatarBlobStore, StudentMapper mapper, FacultyService facultyService, DtoCaches caches, StudentStatistics statistics, FacultyStatsService facultyStatsService, StudentNameIndex nameIndex, StudentAgeIndex ageIndex, ChangeFeed changeFeed) {
         this.studentRepository = repository;
         this.facultyRepository = facultyRepository;
         this.avatarRepository = avatarRepository;
+        this.avatarBlobStore = avatarBlobStore;
         this.mapper = mapper;
+        this.facultyService = facultyService;
+        this.caches = caches;
+        this.statistics = statistics;
+        this.facultyStatsService = facultyStatsService;
+        this.nameIndex = nameIndex;
+        this.ageIndex = ageIndex;
+        this.changeFeed = changeFeed;
     }
 
     public StudentResponseDto create(StudentRequestDto dto) {
@@ -38,15 +75,28 @@ public class StudentService {
             Faculty faculty = facultyRepository.findById(dto.getFacultyId()).orElseThrow();
             student.setFaculty(faculty);
         }
-        return mapper.toDto(studentRepository.save(student));
+        Student saved = studentRepository.save(student);
+        StudentResponseDto created = mapper.toDto(saved);
+        facultyStatsService.studentAdded(created.facultyId(), created.age());
+        caches.evictFacultiesAfterCommit(facultyIds(created.facultyId()));
+        statistics.onCreated(created);
+        nameIndex.addAfterCommit(created.id(), created.name());
+        ageIndex.addAfterCommit(created.id(), created.age());
+        changeFeed.publishAfterCommit(ChangeEntity.STUDENT, created.id(), saved.getVersion(), ChangeOperation.CREATED);
+        return created;
     }
 
+    // Без транзакции: попадание в кеш не должно занимать соединение из пула
+    @Transactional(Transactional.TxType.SUPPORTS)
     public StudentResponseDto read(Long id) {
-        return studentRepository.findById(id).map(mapper::toDto).orElseThrow();
+        return caches.getStudent(id, key -> studentRepository.findDtoById(key).orElseThrow());
     }
 
     public StudentResponseDto update(Long id, StudentRequestDto dto) {
         Student existing = studentRepository.findById(id).orElseThrow();
+        Long previousFacultyId = existing.getFaculty() != null ? existing.getFaculty().getId() : null;
+        int previousAge = existing.getAge();
+        String previousName = existing.getName();
         existing.setName(dto.getName());
         existing.setAge(dto.getAge());
         if (dto.getFacultyId() != null) {
@@ -55,30 +105,114 @@ public class StudentService {
         } else {
             existing.setFaculty(null);
         }
-        return mapper.toDto(studentRepository.save(existing));
+        // Сброс сразу, чтобы в ленту изменений попала уже увеличенная версия
+        Student saved = studentRepository.saveAndFlush(existing);
+        StudentResponseDto updated = mapper.toDto(saved);
+        facultyStatsService.studentChanged(previousFacultyId, previousAge, updated.facultyId(), updated.age());
+        // При переводе меняются списки studentIds обоих факультетов
+        caches.evictStudentAfterCommit(id);
+        caches.evictFacultiesAfterCommit(facultyIds(previousFacultyId, updated.facultyId()));
+        statistics.onUpdated(previousAge, updated);
+        if (!Objects.equals(previousName, updated.name())) {
+            nameIndex.renameAfterCommit(id, previousName, updated.name());
+        }
+        if (previousAge != updated.age()) {
+            ageIndex.moveAfterCommit(id, previousAge, updated.age());
+        }
+        changeFeed.publishAfterCommit(ChangeEntity.STUDENT, id, saved.getVersion(), ChangeOperation.UPDATED);
+        return updated;
     }
 
     public void delete(Long id) {
         Student student = studentRepository.findById(id).orElseThrow();
         if (student.getAvatar() != null) {
+            avatarBlobStore.release(student.getAvatar().getBlob().getHash());
             avatarRepository.delete(student.getAvatar());
+            changeFeed.publishAfterCommit(ChangeEntity.AVATAR, id, null, ChangeOperation.DELETED);
         }
         studentRepository.delete(student);
+        Long facultyId = student.getFaculty() != null ? student.getFaculty().getId() : null;
+        facultyStatsService.studentRemoved(facultyId, student.getAge());
+        caches.evictStudentAfterCommit(id);
+        caches.evictFacultiesAfterCommit(facultyIds(facultyId));
+        statistics.onDeleted(id, student.getAge());
+        nameIndex.removeAfterCommit(id, student.getName());
+        ageIndex.removeAfterCommit(id, student.getAge());
+        changeFeed.publishAfterCommit(ChangeEntity.STUDENT, id, null, ChangeOperation.DELETED);
+    }
+
+    public CursorPage<StudentResponseDto> getAll(String cursor, int size, String sort, boolean withTotal) {
+        KeysetCursor.validate(sort, size, SORTS);
+        KeysetCursor after = KeysetCursor.decode(cursor, sort);
+        Limit limit = Limit.of(size + 1);
+
+        List<StudentResponseDto> rows = switch (sort) {
+            case "name" -> KeysetCursor.nullsLast(after, size + 1,
+                    studentRepository::findFirstPageByName,
+                    (c, l) -> studentRepository.findPageByName(c.value(), c.id(), l),
+                    studentRepository::findPageWithoutName);
+            case "age" -> studentRepository.findPageByAge(
+                    after != null ? after.intValue() : Integer.MIN_VALUE, after != null ? after.id() : 0, limit);
+            default -> studentRepository.findPageById(after != null ? after.id() : 0, limit);
+        };
+        return KeysetCursor.toPage(rows, size, s -> new KeysetCursor(sort, s.id(), switch (sort) {
+                    case "name" -> s.name();
+                    case "age" -> String.valueOf(s.age());
+                    default -> null;
+                }),
+                withTotal ? studentRepository.count() : null);
+    }
+
+    // Страница id и общее число берутся из индекса по возрастам, из БД (или кеша) - только DTO самой страницы
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public CursorPage<StudentResponseDto> findByAgeBetween(int min, int max, String cursor, int size) {
+        KeysetCursor.validate("age", size, AGE_SORT);
+        KeysetCursor after = KeysetCursor.decode(cursor, "age");
+        List<StudentAgeDto> rows = ageIndex.findPage(min, max,
+                after != null ? after.intValue() : Integer.MIN_VALUE, after != null ? after.id() : 0, size + 1);
+        CursorPage<StudentAgeDto> page = KeysetCursor.toPage(rows, size,
+                s -> new KeysetCursor("age", s.id(), String.valueOf(s.age())), ageIndex.count(min, max));
+        List<Long> ids = page.content().stream().map(StudentAgeDto::id).toList();
+        Map<Long, StudentResponseDto> found = caches.getStudents(ids, missing ->
+                studentRepository.findDtosByIds(List.copyOf(missing)).stream()
+                        .collect(Collectors.toMap(StudentResponseDto::id, Function.identity())));
+        // Удалённый между чтением индекса и загрузкой студент просто выпадает из страницы
+        List<StudentResponseDto> content = ids.stream().map(found::get).filter(Objects::nonNull).toList();
+        return new CursorPage<>(content, page.nextCursor(), page.totalElements());
     }
 
-    public Page<StudentResponseDto> getAll(int page, int size) {
-        return studentRepository.findAll(PageRequest.of(page, size)).map(mapper::toDto);
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public long countByAgeBetween(int min, int max) {
+        return ageIndex.count(min, max);
     }
 
-    public List<StudentResponseDto> findByAgeBetween(int min, int max) {
-        return studentRepository.findByAgeBetween(min, max).stream().map(mapper::toDto).toList();
+    // Отвечает индекс в памяти, соединение с БД не нужно
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public List<StudentNameDto> searchByPrefix(String prefix, int limit) {
+        if (limit < 1 || limit > KeysetCursor.MAX_PAGE_SIZE) {
+            throw new InvalidPageRequestException("Количество подсказок должно быть от 1 до " + KeysetCursor.MAX_PAGE_SIZE);
+        }
+        if (prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        return nameIndex.findByPrefix(prefix.strip(), limit);
     }
 
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public StudentStatsDto getStats() {
+        return statistics.snapshot();
+    }
+
+    @Transactional(Transactional.TxType.SUPPORTS)
     public FacultyResponseDto getFacultyByStudentId(Long studentId) {
-        Faculty faculty = studentRepository.findById(studentId).orElseThrow().getFaculty();
-        if (faculty == null) {
+        StudentResponseDto student = read(studentId);
+        if (student.facultyId() == null) {
             throw new FacultyNotFoundException("Student has no faculty");
         }
-        return new FacultyResponseDto(faculty.getId(), faculty.getName(), faculty.getColor(), faculty.getStudents().stream().map(Student::getId).toList());
+        return facultyService.read(student.facultyId());
+    }
+
+    private static List<Long> facultyIds(Long... ids) {
+        return Arrays.asList(ids);
     }
 }
\ No newline at end of file
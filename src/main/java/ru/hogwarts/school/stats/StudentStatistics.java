@@ -0,0 +1,148 @@
+package ru.hogwarts.school.stats;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.dto.AgeCountDto;
+import ru.hogwarts.school.dto.StudentResponseDto;
+import ru.hogwarts.school.dto.StudentStatsDto;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.transaction.AfterCommit;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Агрегаты по студентам считаются один раз при старте и дальше поддерживаются инкрементально,
+// поэтому /students/stats не обращается к БД
+@Component
+public class StudentStatistics {
+    static final int MIN_AGE = 11;
+    static final int MAX_AGE = 25;
+
+    private static final Comparator<StudentResponseDto> NEWEST_FIRST =
+            Comparator.comparing(StudentResponseDto::id, Comparator.reverseOrder());
+
+    private final StudentRepository studentRepository;
+    private final int recentSize;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder ageSum = new LongAdder();
+    private final LongAdder outOfRange = new LongAdder();
+    private final LongAdder[] histogram = new LongAdder[MAX_AGE - MIN_AGE + 1];
+    // Последние N студентов по убыванию id; защищено this
+    private final List<StudentResponseDto> recent;
+
+    public StudentStatistics(StudentRepository studentRepository,
+                             @Value("${students.stats.recent-size:5}") int recentSize) {
+        this.studentRepository = studentRepository;
+        this.recentSize = recentSize;
+        this.recent = new ArrayList<>(recentSize + 1);
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = new LongAdder();
+        }
+    }
+
+    @PostConstruct
+    void seed() {
+        for (AgeCountDto row : studentRepository.countByAge()) {
+            add(row.age(), row.count());
+        }
+        reloadRecent();
+    }
+
+    public void onCreated(StudentResponseDto student) {
+        AfterCommit.run(() -> {
+            add(student.age(), 1);
+            offerRecent(student);
+        });
+    }
+
+    public void onUpdated(int previousAge, StudentResponseDto student) {
+        AfterCommit.run(() -> {
+            add(previousAge, -1);
+            add(student.age(), 1);
+            synchronized (this) {
+                recent.replaceAll(s -> s.id().equals(student.id()) ? student : s);
+            }
+        });
+    }
+
+    public void onDeleted(Long id, int age) {
+        AfterCommit.run(() -> {
+            add(age, -1);
+            boolean removed;
+            synchronized (this) {
+                removed = recent.removeIf(s -> s.id().equals(id));
+            }
+            // Освободившееся место в списке последних заполняется из БД
+            if (removed) {
+                reloadRecent();
+            }
+        });
+    }
+
+    // Вызывается для уже закоммиченной пачки импорта
+    public void onImported(List<StudentResponseDto> students) {
+        for (StudentResponseDto student : students) {
+            add(student.age(), 1);
+        }
+        int from = Math.max(0, students.size() - recentSize);
+        students.subList(from, students.size()).forEach(this::offerRecent);
+    }
+
+    public StudentStatsDto snapshot() {
+        long total = count.sum();
+        Map<Integer, Long> ages = new LinkedHashMap<>();
+        for (int i = 0; i < histogram.length; i++) {
+            ages.put(MIN_AGE + i, histogram[i].sum());
+        }
+        List<StudentResponseDto> last;
+        synchronized (this) {
+            last = List.copyOf(recent);
+        }
+        return new StudentStatsDto(total, total > 0 ? (double) ageSum.sum() / total : null,
+                ages, outOfRange.sum(), last);
+    }
+
+    private void add(int age, long delta) {
+        count.add(delta);
+        ageSum.add(age * delta);
+        if (age >= MIN_AGE && age <= MAX_AGE) {
+            histogram[age - MIN_AGE].add(delta);
+        } else {
+            outOfRange.add(delta);
+        }
+    }
+
+    private synchronized void offerRecent(StudentResponseDto student) {
+        if (recentSize == 0) {
+            return;
+        }
+        // Коммиты могут приходить не в порядке id, поэтому вставка идёт на своё место
+        int index = 0;
+        while (index < recent.size() && recent.get(index).id() > student.id()) {
+            index++;
+        }
+        if (index < recentSize) {
+            recent.add(index, student);
+            if (recent.size() > recentSize) {
+                recent.remove(recent.size() - 1);
+            }
+        }
+    }
+
+    private void reloadRecent() {
+        List<StudentResponseDto> latest = recentSize > 0
+                ? studentRepository.findLatest(Limit.of(recentSize))
+                : List.of();
+        synchronized (this) {
+            recent.clear();
+            recent.addAll(latest);
+            recent.sort(NEWEST_FIRST);
+        }
+    }
+}
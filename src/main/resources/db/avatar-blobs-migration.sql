@@ -0,0 +1,18 @@
+-- Перенос содержимого аватаров из avatars.data в avatar_blobs (адресация по SHA-256).
+-- Выполняется автоматически при запуске (AvatarBlobMigration), пока в avatars есть столбец data.
+ALTER TABLE avatars ADD COLUMN IF NOT EXISTS blob_hash VARCHAR(64);
+
+UPDATE avatars SET blob_hash = encode(sha256(data), 'hex') WHERE blob_hash IS NULL;
+
+INSERT INTO avatar_blobs (hash, file_path, file_size, media_type, ref_count, data)
+SELECT DISTINCT ON (blob_hash) blob_hash, file_path, file_size, media_type,
+       COUNT(*) OVER (PARTITION BY blob_hash), data
+FROM avatars
+ORDER BY blob_hash, id
+ON CONFLICT (hash) DO NOTHING;
+
+ALTER TABLE avatars ALTER COLUMN blob_hash SET NOT NULL;
+-- Hibernate не смог создать ключ, пока столбца не было; при следующем запуске он найдёт этот
+ALTER TABLE avatars ADD CONSTRAINT fk_avatars_blob_hash FOREIGN KEY (blob_hash) REFERENCES avatar_blobs (hash);
+ALTER TABLE avatars DROP COLUMN data;
+ALTER TABLE avatars DROP COLUMN IF EXISTS checksum;
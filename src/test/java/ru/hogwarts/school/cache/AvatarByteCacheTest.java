@@ -0,0 +1,87 @@
+package ru.hogwarts.school.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvatarByteCacheTest {
+
+    private final AvatarByteCache cache = new AvatarByteCache(DataSize.ofKilobytes(64), DataSize.ofKilobytes(4));
+
+    @Test
+    void get_ShouldReturnBytesSpanningSeveralPages() throws Exception {
+        byte[] data = bytes(7000, 7);
+        cache.get("a");
+        cache.put("a", data);
+
+        try (AvatarByteCache.Handle handle = cache.get("a")) {
+            assertNotNull(handle);
+            assertEquals(data.length, handle.length());
+            assertArrayEquals(data, read(handle));
+        }
+        assertEquals(1, cache.getStats().hits());
+        assertEquals(1, cache.getStats().misses());
+    }
+
+    @Test
+    void put_WhenFullAndCandidateIsCold_ShouldRejectIt() {
+        fillWithHotEntries();
+
+        cache.get("cold");
+        cache.put("cold", bytes(4096, 1));
+
+        assertNull(cache.get("cold"));
+        assertEquals(1, cache.getStats().rejections());
+        assertEquals(0, cache.getStats().evictions());
+    }
+
+    @Test
+    void put_WhenFullAndCandidateIsHot_ShouldEvictLeastRecentlyUsed() {
+        fillWithHotEntries();
+        for (int i = 0; i < 5; i++) {
+            cache.get("hot");
+        }
+
+        cache.put("hot", bytes(4096, 1));
+
+        try (AvatarByteCache.Handle handle = cache.get("hot")) {
+            assertNotNull(handle);
+        }
+        assertEquals(1, cache.getStats().evictions());
+    }
+
+    @Test
+    void put_WhenEntryLargerThanLimit_ShouldSkipIt() {
+        cache.put("big", bytes(9000, 1));
+
+        assertNull(cache.get("big"));
+        assertEquals(0, cache.getStats().entries());
+    }
+
+    private void fillWithHotEntries() {
+        for (int i = 0; i < 16; i++) {
+            String key = "key-" + i;
+            cache.get(key);
+            cache.get(key);
+            cache.put(key, bytes(4096, i));
+        }
+        assertEquals(16, cache.getStats().entries());
+    }
+
+    private static byte[] read(AvatarByteCache.Handle handle) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        handle.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static byte[] bytes(int length, int seed) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * seed);
+        }
+        return data;
+    }
+}
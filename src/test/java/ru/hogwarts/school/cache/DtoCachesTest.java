@@ -0,0 +1,110 @@
+package ru.hogwarts.school.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import ru.hogwarts.school.dto.DtoCacheStatsDto;
+import ru.hogwarts.school.dto.FacultyResponseDto;
+import ru.hogwarts.school.dto.StudentResponseDto;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DtoCachesTest {
+
+    private final DtoCaches caches = new DtoCaches(Duration.ofMinutes(1), 100, 100);
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void getStudent_ShouldLoadOnceAndCountHits() {
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            caches.getStudent(1L, id -> {
+                loads.incrementAndGet();
+                return new StudentResponseDto(id, "Гарри Поттер", 17, 1L);
+            });
+        }
+
+        DtoCacheStatsDto stats = caches.getStats().get(0);
+        assertEquals(1, loads.get());
+        assertEquals(2, stats.hits());
+        assertEquals(1, stats.misses());
+    }
+
+    @Test
+    void evictFacultiesAfterCommit_ShouldWaitForCommit() {
+        caches.getFaculty(1L, id -> new FacultyResponseDto(id, "Гриффиндор", "красный", List.of(1L)));
+        caches.getFaculty(2L, id -> new FacultyResponseDto(id, "Слизерин", "зелёный", List.of()));
+        TransactionSynchronizationManager.initSynchronization();
+
+        caches.evictFacultiesAfterCommit(Arrays.asList(1L, 2L, null));
+        assertEquals(2, caches.getStats().get(1).size());
+
+        TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        assertEquals(0, caches.getStats().get(1).size());
+    }
+
+    @Test
+    void evictStudentsOfFacultyAfterCommit_ShouldKeepOtherFaculties() {
+        caches.getStudent(1L, id -> new StudentResponseDto(id, "Гарри Поттер", 17, 1L));
+        caches.getStudent(2L, id -> new StudentResponseDto(id, "Драко Малфой", 17, 2L));
+
+        caches.evictStudentsOfFacultyAfterCommit(1L);
+
+        assertEquals(1, caches.getStats().get(0).size());
+    }
+
+    @Test
+    void getStudents_WhenEvictedDuringLoad_ShouldNotCacheLoadedValue() {
+        Map<Long, StudentResponseDto> found = caches.getStudents(List.of(1L), missing -> {
+            // Параллельное обновление коммитится, пока пакетная загрузка ещё читает старую строку
+            caches.evictStudentAfterCommit(1L);
+            return Map.of(1L, new StudentResponseDto(1L, "Гарри Поттер", 17, 1L));
+        });
+
+        assertEquals(17, found.get(1L).age());
+        StudentResponseDto cached = caches.getStudent(1L, id -> new StudentResponseDto(id, "Гарри Поттер", 18, 1L));
+        assertEquals(18, cached.age());
+    }
+
+    @Test
+    void getStudents_ShouldLoadOnlyMissingAndCacheThem() {
+        caches.getStudent(1L, id -> new StudentResponseDto(id, "Гарри Поттер", 17, 1L));
+        AtomicInteger loaded = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            caches.getStudents(List.of(1L, 2L), missing -> {
+                loaded.addAndGet(missing.size());
+                return Map.of(2L, new StudentResponseDto(2L, "Рон Уизли", 17, 1L));
+            });
+        }
+
+        assertEquals(1, loaded.get());
+        assertEquals(2, caches.getStats().get(0).size());
+    }
+
+    @Test
+    void getFaculties_WhenEvictedDuringLoad_ShouldNotCacheLoadedValue() {
+        caches.getFaculties(List.of(1L), missing -> {
+            // Перевод студента коммитится, пока фильтр загружает прежний список studentIds
+            caches.evictFacultiesAfterCommit(List.of(1L));
+            return Map.of(1L, new FacultyResponseDto(1L, "Гриффиндор", "красный", List.of(1L)));
+        });
+
+        FacultyResponseDto cached = caches.getFaculty(1L, id -> new FacultyResponseDto(id, "Гриффиндор", "красный", List.of()));
+        assertEquals(List.of(), cached.studentIds());
+    }
+}
@@ -0,0 +1,278 @@
+package ru.hogwarts.school.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.server.ResponseStatusException;
+import ru.hogwarts.school.dto.AvatarFileDto;
+import ru.hogwarts.school.dto.AvatarJobDto;
+import ru.hogwarts.school.dto.AvatarJobStatus;
+import ru.hogwarts.school.dto.AvatarResponseDto;
+import ru.hogwarts.school.dto.CursorPage;
+import ru.hogwarts.school.exceptions.InvalidPageRequestException;
+import ru.hogwarts.school.service.AvatarService;
+import ru.hogwarts.school.service.AvatarUploadJobService;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class AvatarControllerWebMvcTest {
+
+    private static final String CHECKSUM = "26a7e00b98c8ee7b4c7e2c27a3af75f94f7e4e37903d49e4173bc3c8dcf2250c";
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private AvatarService avatarService;
+
+    @Mock
+    private AvatarUploadJobService uploadJobService;
+
+    @TempDir
+    Path tempDir;
+
+    private Path avatarPath;
+    private AvatarFileDto avatarFile;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        avatarPath = Files.write(tempDir.resolve("avatar.png"), "0123456789abcdef".getBytes());
+        avatarFile = new AvatarFileDto(1L, 1L, avatarPath.toString(), 16, "image/png",
+                CHECKSUM, Instant.parse("2024-09-01T10:00:00Z"));
+        mockMvc = MockMvcBuilders.standaloneSetup(new AvatarController(avatarService, uploadJobService, Duration.ofHours(1)))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void getAvatarDataFromFile_ShouldStreamFileWithValidators() throws Exception {
+        when(avatarService.getAvatarFile(1L)).thenReturn(avatarFile);
+
+        mockMvc.perform(get("/avatars/students/1/from-file"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + CHECKSUM + "\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=3600, public"))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(content().bytes("0123456789abcdef".getBytes()));
+    }
+
+    @Test
+    void getAvatarDataFromFile_WithRange_ShouldReturnPartialContent() throws Exception {
+        when(avatarService.getAvatarFile(1L)).thenReturn(avatarFile);
+
+        mockMvc.perform(get("/avatars/students/1/from-file").header(HttpHeaders.RANGE, "bytes=0-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-3/16"))
+                .andExpect(content().bytes("0123".getBytes()));
+    }
+
+    @Test
+    void getAvatarDataFromFile_ShouldLookUpMetadataOnlyOnce() throws Exception {
+        when(avatarService.getAvatarFile(1L)).thenReturn(avatarFile);
+
+        mockMvc.perform(get("/avatars/students/1/from-file"))
+                .andExpect(status().isOk());
+
+        verify(avatarService).getAvatarFile(1L);
+        verifyNoMoreInteractions(avatarService);
+    }
+
+    @Test
+    void getAvatarDataFromFile_WhenFileMissing_ShouldReturnNotFound() throws Exception {
+        when(avatarService.getAvatarFile(1L)).thenReturn(new AvatarFileDto(1L, 1L,
+                tempDir.resolve("missing.png").toString(), 16, "image/png", CHECKSUM, Instant.parse("2024-09-01T10:00:00Z")));
+
+        mockMvc.perform(get("/avatars/students/1/from-file"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getAvatarDataFromDb_WhenETagMatches_ShouldReturnNotModifiedWithoutReadingData() throws Exception {
+        when(avatarService.getAvatarFile(1L)).thenReturn(avatarFile);
+
+        mockMvc.perform(get("/avatars/students/1/from-db").header(HttpHeaders.IF_NONE_MATCH, "\"" + CHECKSUM + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=3600, public"));
+
+        verify(avatarService, never()).writeAvatarData(any(AvatarFileDto.class), any(OutputStream.class));
+    }
+
+    @Test
+    void getAvatarDataFromDb_WhenNotModifiedSince_ShouldReturnNotModified() throws Exception {
+        when(avatarService.getAvatarFile(1L)).thenReturn(avatarFile);
+
+        mockMvc.perform(get("/avatars/students/1/from-db")
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, "Sun, 01 Sep 2024 10:00:00 GMT"))
+                .andExpect(status().isNotModified());
+
+        verify(avatarService, never()).writeAvatarData(any(AvatarFileDto.class), any(OutputStream.class));
+    }
+
+    @Test
+    void getAvatarDataFromFile_WhenUpdatedWithinLastSecond_ShouldIgnoreIfModifiedSince() throws Exception {
+        Instant now = Instant.now();
+        when(avatarService.getAvatarFile(1L)).thenReturn(new AvatarFileDto(1L, 1L, avatarPath.toString(), 16,
+                "image/png", CHECKSUM, now));
+
+        // Второе обновление в ту же секунду: дата совпадает с кешированной у клиента, а содержимое уже другое
+        mockMvc.perform(get("/avatars/students/1/from-file")
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, now.toEpochMilli()))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + CHECKSUM + "\""));
+    }
+
+    @Test
+    void getAvatarDataFromDb_ShouldStreamDataWithValidators() throws Exception {
+        when(avatarService.getAvatarFile(1L)).thenReturn(avatarFile);
+        doAnswer(invocation -> {
+            invocation.getArgument(1, OutputStream.class).write("0123456789abcdef".getBytes());
+            return null;
+        }).when(avatarService).writeAvatarData(eq(avatarFile), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/avatars/students/1/from-db"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + CHECKSUM + "\""))
+                .andExpect(content().bytes("0123456789abcdef".getBytes()));
+    }
+
+    @Test
+    void getAvatarDataFromDb_WithSize_ShouldServeVariant() throws Exception {
+        Path variant = Files.write(tempDir.resolve(CHECKSUM + "_64.png"), "thumb".getBytes());
+        when(avatarService.getAvatarFile(1L)).thenReturn(avatarFile);
+        when(avatarService.getAvatarVariant(avatarFile, 64)).thenReturn(variant);
+        doAnswer(invocation -> {
+            Files.copy(invocation.getArgument(0, Path.class), invocation.getArgument(1, OutputStream.class));
+            return null;
+        }).when(avatarService).writeFile(eq(variant), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/avatars/students/1/from-db?size=64"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + CHECKSUM + "-64\""))
+                .andExpect(content().bytes("thumb".getBytes()));
+    }
+
+    @Test
+    void getAvatarDataFromDb_WhenAvatarNotFound_ShouldReturnNotFound() throws Exception {
+        when(avatarService.getAvatarFile(999L))
+                .thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND, "Аватар для студента 999 не найден"));
+
+        mockMvc.perform(get("/avatars/students/999/from-db"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getAllAvatars_ShouldReturnMetadataOnly() throws Exception {
+        AvatarResponseDto avatar = new AvatarResponseDto(1L, 1L, 16, "image/png", 2L);
+        when(avatarService.getAllAvatars(null, 10, "id", false))
+                .thenReturn(new CursorPage<>(List.of(avatar), null, null));
+
+        mockMvc.perform(get("/avatars"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(1))
+                .andExpect(jsonPath("$.content[0].studentId").value(1))
+                .andExpect(jsonPath("$.content[0].fileSize").value(16))
+                .andExpect(jsonPath("$.content[0].version").value(2))
+                .andExpect(jsonPath("$.content[0].data").doesNotExist())
+                .andExpect(jsonPath("$.content[0].filePath").doesNotExist());
+
+        verify(avatarService, never()).getAvatarData(any(AvatarFileDto.class));
+    }
+
+    @Test
+    void getAvatarById_ShouldReturnMetadata() throws Exception {
+        when(avatarService.getAvatarById(1L)).thenReturn(new AvatarResponseDto(1L, 3L, 16, "image/png", 0L));
+
+        mockMvc.perform(get("/avatars/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.studentId").value(3))
+                .andExpect(jsonPath("$.mediaType").value("image/png"))
+                .andExpect(jsonPath("$.version").value(0));
+    }
+
+    @Test
+    void getAvatarsByFileSizeGreaterThan_ShouldReturnCursorPage() throws Exception {
+        AvatarResponseDto avatar = new AvatarResponseDto(1L, 1L, 2048, "image/png", 0L);
+        when(avatarService.getAvatarsByFileSizeGreaterThan(1024L, "next", 10, true))
+                .thenReturn(new CursorPage<>(List.of(avatar), "after", 1L));
+
+        mockMvc.perform(get("/avatars/size-greater-than")
+                        .param("min", "1024")
+                        .param("cursor", "next")
+                        .param("withTotal", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].fileSize").value(2048))
+                .andExpect(jsonPath("$.nextCursor").value("after"))
+                .andExpect(jsonPath("$.totalElements").value(1));
+    }
+
+    @Test
+    void getAvatarsByFileSizeGreaterThan_WithInvalidPageSize_ShouldReturnBadRequest() throws Exception {
+        when(avatarService.getAvatarsByFileSizeGreaterThan(1024L, null, 0, false))
+                .thenThrow(new InvalidPageRequestException("Размер страницы должен быть от 1 до 100"));
+
+        mockMvc.perform(get("/avatars/size-greater-than").param("min", "1024").param("size", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAvatarsByFileSizeGreaterThan_WithNegativeMin_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/avatars/size-greater-than").param("min", "-1"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(avatarService);
+    }
+
+    @Test
+    void uploadAvatarAsync_ShouldAcceptAndPointToJob() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "avatar.png", "image/png", new byte[]{1, 2, 3});
+        Instant now = Instant.parse("2024-09-01T10:00:00Z");
+        when(uploadJobService.submit(eq(1L), any()))
+                .thenReturn(new AvatarJobDto("job-1", 1L, AvatarJobStatus.QUEUED, null, null, null, now, now));
+
+        mockMvc.perform(multipart("/avatars/students/1").file(file).param("async", "true"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/avatars/jobs/job-1"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+
+        verifyNoInteractions(avatarService);
+    }
+
+    @Test
+    void getUploadJob_WhenUnknown_ShouldReturnNotFound() throws Exception {
+        when(uploadJobService.getJob("missing"))
+                .thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND, "Задача загрузки missing не найдена"));
+
+        mockMvc.perform(get("/avatars/jobs/missing"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -3,18 +3,27 @@ package ru.hogwarts.school.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.hogwarts.school.dto.CursorPage;
 import ru.hogwarts.school.dto.FacultyRequestDto;
 import ru.hogwarts.school.dto.FacultyResponseDto;
+import ru.hogwarts.school.dto.FacultyStatsDto;
 import ru.hogwarts.school.dto.StudentResponseDto;
 import ru.hogwarts.school.exceptions.FacultyNotFoundException;
+import ru.hogwarts.school.export.ExportFormat;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.service.ExportService;
 import ru.hogwarts.school.service.FacultyService;
+import ru.hogwarts.school.service.FacultyStatsService;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.*;
@@ -29,7 +38,12 @@ class FacultyControllerWebMvcTest {
     @Mock
     private FacultyService facultyService;
 
-    @InjectMocks
+    @Mock
+    private ExportService exportService;
+
+    @Mock
+    private FacultyStatsService statsService;
+
     private FacultyController facultyController;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
@@ -39,11 +53,36 @@ class FacultyControllerWebMvcTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        facultyController = new FacultyController(facultyService, exportService, statsService);
         mockMvc = MockMvcBuilders.standaloneSetup(facultyController)
                 .setControllerAdvice(new GlobalExceptionHandler())
                 .build();
     }
 
+    @Test
+    void getStats_ShouldReturnSummaryRows() throws Exception {
+        when(statsService.getAll()).thenReturn(List.of(new FacultyStatsDto(1L, "Гриффиндор", 2, 33L, 16, 17)));
+
+        mockMvc.perform(get("/faculties/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].facultyId").value(1L))
+                .andExpect(jsonPath("$[0].studentCount").value(2))
+                .andExpect(jsonPath("$[0].averageAge").value(16.5))
+                .andExpect(jsonPath("$[0].minAge").value(16))
+                .andExpect(jsonPath("$[0].maxAge").value(17));
+        verify(facultyService, never()).read(any());
+    }
+
+    @Test
+    void rebuildStats_ShouldRecalculateSummary() throws Exception {
+        when(statsService.rebuild()).thenReturn(List.of(new FacultyStatsDto(1L, "Гриффиндор", 0, 0L, null, null)));
+
+        mockMvc.perform(post("/faculties/stats/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].studentCount").value(0))
+                .andExpect(jsonPath("$[0].averageAge").doesNotExist());
+    }
+
     @Test
     void create_ShouldReturnCreatedFaculty() throws Exception {
         FacultyRequestDto requestDto = new FacultyRequestDto();
@@ -97,6 +136,22 @@ class FacultyControllerWebMvcTest {
                 .andExpect(jsonPath("$.color").value("алый"));
     }
 
+    @Test
+    void update_WhenFacultyWasModifiedConcurrently_ShouldReturnConflict() throws Exception {
+        FacultyRequestDto requestDto = new FacultyRequestDto();
+        requestDto.setName("Гриффиндор");
+        requestDto.setColor("алый");
+
+        when(facultyService.update(eq(1L), any(FacultyRequestDto.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Faculty.class, 1L));
+
+        mockMvc.perform(put("/faculties/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isConflict())
+                .andExpect(content().string("Запись была изменена другим запросом, повторите с актуальными данными"));
+    }
+
     @Test
     void delete_ShouldReturnNoContent() throws Exception {
         doNothing().when(facultyService).delete(1L);
@@ -107,11 +162,12 @@ class FacultyControllerWebMvcTest {
 
     @Test
     void getAll_ShouldReturnAllFaculties() throws Exception {
-        when(facultyService.getAll()).thenReturn(List.of(facultyResponse));
+        when(facultyService.getAll(null, 10, "id", false))
+                .thenReturn(new CursorPage<>(List.of(facultyResponse), null, null));
 
         mockMvc.perform(get("/faculties"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].name").value("Гриффиндор"));
+                .andExpect(jsonPath("$.content[0].name").value("Гриффиндор"));
     }
 
     @Test
@@ -142,4 +198,43 @@ class FacultyControllerWebMvcTest {
                 .andExpect(content().contentType(MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8"))
                 .andExpect(content().string("Факультет с ID:999 не найден."));
     }
-}
\ No newline at end of file
+
+    @Test
+    void streamStudents_ShouldWriteOneJsonObjectPerLine() throws Exception {
+        StudentResponseDto second = new StudentResponseDto(2L, "Рон Уизли", 17, 1L);
+        String body = objectMapper.writeValueAsString(studentResponse) + "\n"
+                + objectMapper.writeValueAsString(second) + "\n";
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(2);
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(exportService).exportFacultyStudents(eq(1L), eq(ExportFormat.NDJSON), any());
+
+        MvcResult result = mockMvc.perform(get("/faculties/1/students").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().bytes(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void streamStudents_WhenFacultyNotFound_ShouldReturnNotFoundBeforeStreaming() throws Exception {
+        doThrow(new FacultyNotFoundException(999L)).when(facultyService).checkExists(999L);
+
+        mockMvc.perform(get("/faculties/999/students").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isNotFound());
+
+        verify(exportService, never()).exportFacultyStudents(any(), any(), any());
+    }
+
+    @Test
+    void export_WithUnknownFormat_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/faculties/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(exportService);
+    }
+}
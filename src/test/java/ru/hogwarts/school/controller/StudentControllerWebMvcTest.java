@@ -6,23 +6,41 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.hogwarts.school.dto.CursorPage;
 import ru.hogwarts.school.dto.FacultyResponseDto;
+import ru.hogwarts.school.dto.StudentImportErrorDto;
+import ru.hogwarts.school.dto.StudentImportReportDto;
+import ru.hogwarts.school.dto.StudentNameDto;
 import ru.hogwarts.school.dto.StudentRequestDto;
 import ru.hogwarts.school.dto.StudentResponseDto;
+import ru.hogwarts.school.dto.StudentStatsDto;
 import ru.hogwarts.school.exceptions.FacultyNotFoundException;
+import ru.hogwarts.school.exceptions.InvalidPageRequestException;
+import ru.hogwarts.school.export.ExportFormat;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.service.ExportService;
+import ru.hogwarts.school.service.StudentImportService;
 import ru.hogwarts.school.service.StudentService;
 
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -35,6 +53,12 @@ class StudentControllerWebMvcTest {
     private MockMvc mockMvc;
     @Mock
     private StudentService studentService;
+    @Mock
+    private StudentImportService importService;
+
+    @Mock
+    private ExportService exportService;
+
     @InjectMocks
     private StudentController studentController;
 
@@ -73,6 +97,38 @@ class StudentControllerWebMvcTest {
                 .andExpect(jsonPath("$.name").value("Гарри Поттер"));
     }
 
+    @Test
+    void searchByPrefix_ShouldReturnMatches() throws Exception {
+        when(studentService.searchByPrefix("гар", 5)).thenReturn(List.of(new StudentNameDto(1L, "Гарри Поттер")));
+
+        mockMvc.perform(get("/students/search/prefix").param("q", "гар").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1L))
+                .andExpect(jsonPath("$[0].name").value("Гарри Поттер"));
+    }
+
+    @Test
+    void searchByPrefix_WhenLimitInvalid_ShouldReturnBadRequest() throws Exception {
+        when(studentService.searchByPrefix("гар", 1000))
+                .thenThrow(new InvalidPageRequestException("Количество подсказок должно быть от 1 до 100"));
+
+        mockMvc.perform(get("/students/search/prefix").param("q", "гар").param("limit", "1000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getStats_ShouldReturnAggregates() throws Exception {
+        when(studentService.getStats()).thenReturn(new StudentStatsDto(1, 17.0, Map.of(17, 1L), 0, List.of(studentResponse)));
+
+        mockMvc.perform(get("/students/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(1))
+                .andExpect(jsonPath("$.averageAge").value(17.0))
+                .andExpect(jsonPath("$.ageHistogram.17").value(1))
+                .andExpect(jsonPath("$.lastStudents[0].id").value(1L));
+        verify(studentService, never()).read(any());
+    }
+
     @Test
     void update_ShouldReturnUpdatedStudent() throws Exception {
         StudentRequestDto requestDto = new StudentRequestDto();
@@ -89,6 +145,21 @@ class StudentControllerWebMvcTest {
                 .andExpect(jsonPath("$.age").value(18));
     }
 
+    @Test
+    void update_WhenStudentWasModifiedConcurrently_ShouldReturnConflict() throws Exception {
+        StudentRequestDto requestDto = new StudentRequestDto();
+        requestDto.setName("Гарри Поттер");
+        requestDto.setAge(18);
+
+        when(studentService.update(eq(1L), any(StudentRequestDto.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Student.class, 1L));
+
+        mockMvc.perform(put("/students/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isConflict());
+    }
+
     @Test
     void delete_ShouldReturnNoContent() throws Exception {
         doNothing().when(studentService).delete(1L);
@@ -99,21 +170,55 @@ class StudentControllerWebMvcTest {
 
     @Test
     void getAll_ShouldReturnPageOfStudents() throws Exception {
-        Page<StudentResponseDto> page = new PageImpl<>(List.of(studentResponse), PageRequest.of(0, 10), 1);
-        when(studentService.getAll(0, 10)).thenReturn(page);
+        CursorPage<StudentResponseDto> page = new CursorPage<>(List.of(studentResponse), "bmFtZToxOkg", null);
+        when(studentService.getAll(null, 10, "name", false)).thenReturn(page);
 
-        mockMvc.perform(get("/students?page=0&size=10"))
+        mockMvc.perform(get("/students?size=10&sort=name"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.content[0].name").value("Гарри Поттер"));
+                .andExpect(jsonPath("$.content[0].name").value("Гарри Поттер"))
+                .andExpect(jsonPath("$.nextCursor").value("bmFtZToxOkg"))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
     }
 
     @Test
-    void findByAgeBetween_ShouldReturnStudents() throws Exception {
-        when(studentService.findByAgeBetween(16, 19)).thenReturn(List.of(studentResponse));
+    void getAll_WithNextCursorAndTotal_ShouldPassThem() throws Exception {
+        CursorPage<StudentResponseDto> page = new CursorPage<>(List.of(studentResponse), null, 11L);
+        when(studentService.getAll("aWQ6MTA", 10, "id", true)).thenReturn(page);
 
-        mockMvc.perform(get("/students/age-between?min=16&max=19"))
+        mockMvc.perform(get("/students?cursor=aWQ6MTA&withTotal=true"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].name").value("Гарри Поттер"));
+                .andExpect(jsonPath("$.nextCursor").doesNotExist())
+                .andExpect(jsonPath("$.totalElements").value(11));
+    }
+
+    @Test
+    void getAll_WithInvalidCursor_ShouldReturnBadRequest() throws Exception {
+        when(studentService.getAll("broken", 10, "id", false))
+                .thenThrow(new InvalidPageRequestException("Некорректный курсор страницы"));
+
+        mockMvc.perform(get("/students?cursor=broken"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void findByAgeBetween_ShouldReturnPageOfStudents() throws Exception {
+        when(studentService.findByAgeBetween(16, 19, "YWdlOjE6MTc", 1))
+                .thenReturn(new CursorPage<>(List.of(studentResponse), "YWdlOjI6MTc", 2L));
+
+        mockMvc.perform(get("/students/age-between?min=16&max=19&cursor=YWdlOjE6MTc&size=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name").value("Гарри Поттер"))
+                .andExpect(jsonPath("$.nextCursor").value("YWdlOjI6MTc"))
+                .andExpect(jsonPath("$.totalElements").value(2));
+    }
+
+    @Test
+    void countByAgeBetween_ShouldReturnCount() throws Exception {
+        when(studentService.countByAgeBetween(11, 25)).thenReturn(42L);
+
+        mockMvc.perform(get("/students/age-between/count?min=11&max=25"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("42"));
     }
 
     @Test
@@ -134,4 +239,55 @@ class StudentControllerWebMvcTest {
                 .andExpect(status().isNotFound())
                 .andExpect(content().string("Student has no faculty"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void importCsv_ShouldReturnReport() throws Exception {
+        StudentImportReportDto report = new StudentImportReportDto(2, 1, 1,
+                List.of(new StudentImportErrorDto(3, "Возраст должен быть от 11 до 25, получено 40")));
+        when(importService.importCsv(any())).thenReturn(report);
+
+        mockMvc.perform(post("/students/import")
+                        .contentType("text/csv")
+                        .content("name,age,facultyId\nГарри Поттер,17,1\nДамблдор,40,\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(3));
+    }
+
+    @Test
+    void importNdjson_ShouldUseNdjsonParser() throws Exception {
+        when(importService.importNdjson(any())).thenReturn(new StudentImportReportDto(1, 1, 0, List.of()));
+
+        mockMvc.perform(post("/students/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"name\":\"Гарри Поттер\",\"age\":17}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.failed").value(0));
+
+        verify(importService, never()).importCsv(any());
+    }
+
+    @Test
+    void export_WithGzip_ShouldStreamCompressedAttachment() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(1);
+            out.write("id,name,age,facultyId\n1,Гарри Поттер,17,1\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(exportService).exportStudents(eq(ExportFormat.CSV), any());
+
+        MvcResult result = mockMvc.perform(get("/students/export").param("gzip", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"students.csv.gz\""))
+                .andExpect(content().contentType("application/gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals("id,name,age,facultyId\n1,Гарри Поттер,17,1\n",
+                    new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ru.hogwarts.school.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.dto.StudentResponseDto;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RowWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void writeAll_AsCsv_ShouldWriteHeaderAndEscapeValues() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        writer(out, ExportFormat.CSV).writeAll(Stream.of(
+                new StudentResponseDto(1L, "Поттер, Гарри", 17, 1L),
+                new StudentResponseDto(2L, "Рон \"Уизли\"", 17, null)));
+
+        assertEquals("id,name,age,facultyId\n"
+                + "1,\"Поттер, Гарри\",17,1\n"
+                + "2,\"Рон \"\"Уизли\"\"\",17,\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writeAll_AsNdjson_ShouldWriteOneObjectPerLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        writer(out, ExportFormat.NDJSON).writeAll(Stream.of(new StudentResponseDto(1L, "Гарри", 17, 1L)));
+
+        assertEquals("{\"id\":1,\"name\":\"Гарри\",\"age\":17,\"facultyId\":1}\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    private RowWriter<StudentResponseDto> writer(ByteArrayOutputStream out, ExportFormat format) {
+        return new RowWriter<>(out, format, objectMapper.writerFor(StudentResponseDto.class),
+                List.of("id", "name", "age", "facultyId"),
+                s -> Arrays.asList(s.id(), s.name(), s.age(), s.facultyId()));
+    }
+}
@@ -0,0 +1,110 @@
+package ru.hogwarts.school.feed;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.hogwarts.school.dto.ChangeEntity;
+import ru.hogwarts.school.dto.ChangeEventDto;
+import ru.hogwarts.school.dto.ChangeOperation;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeFeedTest {
+
+    private ChangeFeed feed;
+    private final CountDownLatch unblock = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        feed = new ChangeFeed(3, Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofMillis(200));
+    }
+
+    @AfterEach
+    void tearDown() {
+        unblock.countDown();
+        feed.shutdown();
+    }
+
+    @Test
+    void eventsAfter_ShouldReplayOnlyNewerEvents() {
+        long start = feed.eventsAfter(Long.MIN_VALUE).lastId();
+        feed.publishAfterCommit(ChangeEntity.STUDENT, 1L, 0L, ChangeOperation.CREATED);
+        feed.publishAfterCommit(ChangeEntity.STUDENT, 1L, 1L, ChangeOperation.UPDATED);
+
+        ChangeFeed.Replay replay = feed.eventsAfter(start + 1);
+
+        assertFalse(replay.reset());
+        assertEquals(List.of(new ChangeEventDto(start + 2, ChangeEntity.STUDENT, 1L, 1L, ChangeOperation.UPDATED)),
+                replay.events());
+    }
+
+    @Test
+    void eventsAfter_WhenEventsWereEvicted_ShouldRequestReset() {
+        long start = feed.eventsAfter(Long.MIN_VALUE).lastId();
+        feed.publish(ChangeEntity.STUDENT, List.of(1L, 2L, 3L, 4L), 0L, ChangeOperation.CREATED);
+
+        assertTrue(feed.eventsAfter(start).reset());
+        ChangeFeed.Replay replay = feed.eventsAfter(start + 1);
+        assertFalse(replay.reset());
+        assertEquals(List.of(2L, 3L, 4L), replay.events().stream().map(ChangeEventDto::entityId).toList());
+    }
+
+    @Test
+    void eventsAfter_WhenIdIsFromTheFuture_ShouldRequestReset() {
+        feed.publishAfterCommit(ChangeEntity.FACULTY, 1L, 0L, ChangeOperation.CREATED);
+        long last = feed.eventsAfter(Long.MIN_VALUE).lastId();
+
+        assertTrue(feed.eventsAfter(last + 1).reset());
+        assertTrue(feed.eventsAfter(last).events().isEmpty());
+    }
+
+    @Test
+    void publish_WhenSubscriberIsStuck_ShouldDeliverToOthersAndDropStuckOne() throws Exception {
+        long start = feed.eventsAfter(Long.MIN_VALUE).lastId();
+        CountDownLatch stuckSending = new CountDownLatch(1);
+        feed.subscribe(new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                stuckSending.countDown();
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, start, Set.of());
+        BlockingQueue<SseEmitter.SseEventBuilder> received = new LinkedBlockingQueue<>();
+        feed.subscribe(new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                received.add(builder);
+            }
+        }, start, Set.of());
+
+        feed.publishAfterCommit(ChangeEntity.STUDENT, 1L, 0L, ChangeOperation.CREATED);
+
+        assertTrue(stuckSending.await(5, TimeUnit.SECONDS));
+        assertNotNull(received.poll(5, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (feed.getSubscriberCount() > 1 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, feed.getSubscriberCount());
+
+        feed.publishAfterCommit(ChangeEntity.STUDENT, 2L, 0L, ChangeOperation.CREATED);
+        assertNotNull(received.poll(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,62 @@
+package ru.hogwarts.school.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class HibernateRequestMetricsFilterTest {
+
+    private SimpleMeterRegistry registry;
+    private HibernateRequestMetricsFilter filter;
+    private RequestQueryCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        filter = new HibernateRequestMetricsFilter(registry);
+        Map<String, Object> properties = new HashMap<>();
+        filter.customize(properties);
+        counter = (RequestQueryCounter) properties.get(AvailableSettings.STATEMENT_INSPECTOR);
+    }
+
+    @Test
+    void doFilter_ShouldRecordStatementsAndLoadsPerEndpoint() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/students/1");
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/students/{id}");
+            counter.inspect("select 1");
+            counter.inspect("select 2");
+            counter.onLoad(new Object(), (Object) 1L, null, null, null);
+        });
+
+        DistributionSummary statements = registry.get("hibernate.request.statements")
+                .tags("method", "GET", "uri", "/students/{id}").summary();
+        DistributionSummary loads = registry.get("hibernate.request.entity.loads")
+                .tags("method", "GET", "uri", "/students/{id}").summary();
+        assertEquals(2, statements.totalAmount());
+        assertEquals(1, loads.totalAmount());
+    }
+
+    @Test
+    void inspect_OutsideRequest_ShouldNotCount() throws Exception {
+        counter.inspect("select 1");
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/actuator/prometheus"), new MockHttpServletResponse(),
+                (req, res) -> counter.inspect("select 2"));
+
+        assertNull(registry.find("hibernate.request.statements").summary());
+        assertEquals(0, counter.stop().statements());
+    }
+}
@@ -0,0 +1,104 @@
+package ru.hogwarts.school.pagination;
+
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.dto.CursorPage;
+import ru.hogwarts.school.exceptions.InvalidPageRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void decode_ShouldRestoreEncodedCursor() {
+        KeysetCursor cursor = new KeysetCursor("name", 42, "Гермиона: Грейнджер");
+
+        assertEquals(cursor, KeysetCursor.decode(cursor.encode(), "name"));
+    }
+
+    @Test
+    void decode_ShouldKeepNullValue() {
+        KeysetCursor cursor = new KeysetCursor("name", 7, null);
+
+        assertNull(KeysetCursor.decode(cursor.encode(), "name").value());
+    }
+
+    @Test
+    void decode_WithOtherSort_ShouldThrow() {
+        String token = new KeysetCursor("age", 1, "17").encode();
+
+        assertThrows(InvalidPageRequestException.class, () -> KeysetCursor.decode(token, "name"));
+    }
+
+    @Test
+    void decode_WithGarbage_ShouldThrow() {
+        assertThrows(InvalidPageRequestException.class, () -> KeysetCursor.decode("!!!", "id"));
+    }
+
+    @Test
+    void intValue_ShouldParseNumericKey() {
+        String token = new KeysetCursor("age", 1, "17").encode();
+
+        assertEquals(17, KeysetCursor.decode(token, "age").intValue());
+    }
+
+    @Test
+    void intValue_WithMissingOrNonNumericValue_ShouldThrow() {
+        KeysetCursor withoutValue = KeysetCursor.decode(encodeRaw("age:5"), "age");
+        KeysetCursor withText = KeysetCursor.decode(encodeRaw("age:5:x"), "age");
+        KeysetCursor overflow = KeysetCursor.decode(encodeRaw("age:5:4294967307"), "age");
+
+        assertThrows(InvalidPageRequestException.class, withoutValue::intValue);
+        assertThrows(InvalidPageRequestException.class, withText::intValue);
+        assertThrows(InvalidPageRequestException.class, overflow::intValue);
+    }
+
+    @Test
+    void longValue_WithNonNumericValue_ShouldThrow() {
+        KeysetCursor cursor = KeysetCursor.decode(encodeRaw("fileSize:5:x"), "fileSize");
+
+        assertThrows(InvalidPageRequestException.class, cursor::longValue);
+    }
+
+    @Test
+    void validate_ShouldRejectUnknownSortAndOversizedPage() {
+        assertThrows(InvalidPageRequestException.class, () -> KeysetCursor.validate("email", 10, Set.of("id")));
+        assertThrows(InvalidPageRequestException.class,
+                () -> KeysetCursor.validate("id", KeysetCursor.MAX_PAGE_SIZE + 1, Set.of("id")));
+    }
+
+    @Test
+    void toPage_ShouldDropLookaheadRowAndPointCursorAtLastReturned() {
+        CursorPage<Long> page = KeysetCursor.toPage(List.of(1L, 2L, 3L), 2, id -> new KeysetCursor("id", id, null), null);
+
+        assertEquals(List.of(1L, 2L), page.content());
+        assertEquals(2, KeysetCursor.decode(page.nextCursor(), "id").id());
+    }
+
+    @Test
+    void toPage_OnLastPage_ShouldHaveNoCursor() {
+        CursorPage<Long> page = KeysetCursor.toPage(List.of(1L, 2L), 2, id -> new KeysetCursor("id", id, null), 2L);
+
+        assertNull(page.nextCursor());
+        assertEquals(2L, page.totalElements());
+    }
+
+    @Test
+    void nullsLast_ShouldTopUpWithRowsWithoutValue() {
+        List<String> rows = KeysetCursor.nullsLast(new KeysetCursor("name", 3, "Рон"), 3,
+                limit -> List.of(),
+                (cursor, limit) -> List.of("Северус"),
+                (afterId, limit) -> List.of("без имени 1", "без имени 2", "без имени 3").subList(0, limit.max()));
+
+        assertEquals(List.of("Северус", "без имени 1", "без имени 2"), rows);
+    }
+
+    // Курсор, собранный вручную: так его может прислать клиент
+    private static String encodeRaw(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
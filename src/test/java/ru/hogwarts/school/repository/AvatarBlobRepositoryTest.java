@@ -0,0 +1,102 @@
+package ru.hogwarts.school.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({EmbeddedPostgresConfig.class, AvatarDataRepository.class})
+class AvatarBlobRepositoryTest {
+
+    private static final String HASH = "a".repeat(64);
+
+    @Autowired
+    private AvatarBlobRepository blobRepository;
+
+    @Autowired
+    private AvatarDataRepository dataRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        file = Files.write(tempDir.resolve(HASH + ".png"), new byte[]{1, 2, 3});
+    }
+
+    @Test
+    void insertBlob_WhenHashExists_ShouldOnlyIncrementRefCount() {
+        dataRepository.insertBlob(HASH, file, 3, "image/png");
+        dataRepository.insertBlob(HASH, file, 3, "image/png");
+
+        assertEquals(2, refCount());
+    }
+
+    @Test
+    void lockHash_ShouldHoldAdvisoryLockUntilTransactionEnds() {
+        dataRepository.lockHash(HASH);
+        dataRepository.lockHash(HASH);
+
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_locks WHERE locktype = 'advisory' AND pid = pg_backend_pid()", Integer.class));
+    }
+
+    @Test
+    void release_WhenAlreadyReleased_ShouldNotGoBelowZero() {
+        dataRepository.insertBlob(HASH, file, 3, "image/png");
+
+        assertEquals(1, blobRepository.release(HASH, Instant.now()));
+        assertEquals(0, blobRepository.release(HASH, Instant.now()));
+
+        assertEquals(0, refCount());
+    }
+
+    @Test
+    void retain_AfterDoubleRelease_ShouldKeepBlobReferenced() {
+        dataRepository.insertBlob(HASH, file, 3, "image/png");
+        blobRepository.release(HASH, Instant.now().minus(2, ChronoUnit.HOURS));
+        blobRepository.release(HASH, Instant.now().minus(2, ChronoUnit.HOURS));
+
+        assertEquals(1, blobRepository.retain(HASH));
+
+        assertEquals(1, refCount());
+        assertTrue(blobRepository.findUnreferenced(Instant.now(), Limit.of(10)).isEmpty());
+        assertEquals(0, blobRepository.deleteIfUnreferenced(HASH));
+    }
+
+    @Test
+    void findUnreferenced_ShouldRespectGracePeriod() {
+        dataRepository.insertBlob(HASH, file, 3, "image/png");
+        Instant releasedAt = Instant.now().minus(2, ChronoUnit.HOURS);
+        blobRepository.release(HASH, releasedAt);
+
+        assertTrue(blobRepository.findUnreferenced(releasedAt, Limit.of(10)).isEmpty());
+        assertEquals(List.of(HASH), blobRepository.findUnreferenced(releasedAt.plusSeconds(1), Limit.of(10)));
+        assertEquals(1, blobRepository.deleteIfUnreferenced(HASH));
+    }
+
+    private int refCount() {
+        return jdbcTemplate.queryForObject("SELECT ref_count FROM avatar_blobs WHERE hash = ?", Integer.class, HASH);
+    }
+}
@@ -0,0 +1,38 @@
+package ru.hogwarts.school.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// Один встроенный PostgreSQL на все тесты репозиториев; останавливается вместе с JVM
+@TestConfiguration(proxyBeanMethods = false)
+public class EmbeddedPostgresConfig {
+    private static EmbeddedPostgres postgres;
+
+    @Bean
+    public DataSource dataSource() {
+        return instance().getPostgresDatabase();
+    }
+
+    private static synchronized EmbeddedPostgres instance() {
+        if (postgres == null) {
+            try {
+                postgres = EmbeddedPostgres.builder().start();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    postgres.close();
+                } catch (IOException ignored) {
+                    // JVM всё равно завершается
+                }
+            }));
+        }
+        return postgres;
+    }
+}
@@ -0,0 +1,146 @@
+package ru.hogwarts.school.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.service.FacultyStatsService;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Транзакции открываются вручную: проверяется поведение двух параллельных транзакций
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({EmbeddedPostgresConfig.class, FacultyStatsService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FacultyStatsRepositoryTest {
+
+    @Autowired
+    private FacultyStatsService statsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private long facultyId;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        facultyId = transactionTemplate.execute(status -> {
+            long id = jdbcTemplate.queryForObject(
+                    "INSERT INTO faculties (name, color) VALUES ('Когтевран', 'синий') RETURNING id", Long.class);
+            statsService.facultyCreated(id);
+            return id;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM student WHERE faculty_id = ?", facultyId);
+        jdbcTemplate.update("DELETE FROM faculty_stats WHERE faculty_id = ?", facultyId);
+        jdbcTemplate.update("DELETE FROM faculties WHERE id = ?", facultyId);
+    }
+
+    @Test
+    void studentAdded_ShouldMaintainCountSumAndAgeRange() {
+        addStudent(14);
+        addStudent(12);
+        long removed = addStudent(17);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM student WHERE id = ?", removed);
+            statsService.studentRemoved(facultyId, 17);
+        });
+
+        Map<String, Object> row = stats();
+        assertEquals(2L, ((Number) row.get("student_count")).longValue());
+        assertEquals(26L, ((Number) row.get("age_sum")).longValue());
+        assertEquals(12, row.get("min_age"));
+        assertEquals(14, row.get("max_age"));
+    }
+
+    @Test
+    void studentAdded_WhenTwoTransactionsRace_ShouldKeepBothInAgeRange() throws Exception {
+        CountDownLatch firstApplied = new CountDownLatch(1);
+        CountDownLatch secondWaiting = new CountDownLatch(1);
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            insertStudent(12);
+            statsService.studentAdded(facultyId, 12);
+            firstApplied.countDown();
+            await(secondWaiting);
+        }));
+        assertTrue(firstApplied.await(10, TimeUnit.SECONDS));
+
+        // Вторая транзакция вставляет студента и упирается в блокировку строки сводки, которую держит первая
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            insertStudent(20);
+            statsService.studentAdded(facultyId, 20);
+        }));
+        waitForLockWait();
+        secondWaiting.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+
+        Map<String, Object> row = stats();
+        assertEquals(2L, ((Number) row.get("student_count")).longValue());
+        assertEquals(12, row.get("min_age"));
+        assertEquals(20, row.get("max_age"));
+    }
+
+    private long addStudent(int age) {
+        return transactionTemplate.execute(status -> {
+            long id = insertStudent(age);
+            statsService.studentAdded(facultyId, age);
+            return id;
+        });
+    }
+
+    private long insertStudent(int age) {
+        return jdbcTemplate.queryForObject("INSERT INTO student (name, age, faculty_id) VALUES ('Студент', ?, ?) RETURNING id",
+                Long.class, age, facultyId);
+    }
+
+    private Map<String, Object> stats() {
+        return jdbcTemplate.queryForMap("SELECT * FROM faculty_stats WHERE faculty_id = ?", facultyId);
+    }
+
+    private void waitForLockWait() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock'", Integer.class) == 0) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Вторая транзакция не дошла до ожидания блокировки");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new AssertionError("Не дождались второй транзакции");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ru.hogwarts.school.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ru.hogwarts.school.dto.FacultyExportDto;
+import ru.hogwarts.school.repository.FacultyRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+class FacultySearchIndexTest {
+
+    @Mock
+    private FacultyRepository facultyRepository;
+
+    private FacultySearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(facultyRepository.findAllNamesAndColors()).thenReturn(List.of(
+                new FacultyExportDto(3L, "Слизерин", "Зелёный"),
+                new FacultyExportDto(1L, "Гриффиндор", "Красный"),
+                new FacultyExportDto(2L, "Когтевран", null)));
+        index = new FacultySearchIndex(facultyRepository);
+        index.build();
+    }
+
+    @Test
+    void search_ShouldMatchSubstringOfNameOrColorIgnoringCase() {
+        assertEquals(List.of(1L), index.search("ФФИН"));
+        assertEquals(List.of(3L), index.search("лёный"));
+        assertEquals(List.of(1L, 3L), index.search("ИН"));
+        assertEquals(List.of(1L, 2L, 3L), index.search(""));
+        assertEquals(List.of(), index.search("гриффиндорец"));
+    }
+
+    @Test
+    void search_WhenTrigramsMatchButSubstringDoesNot_ShouldSkipCandidate() {
+        // Триграммы "абв" и "бвг" есть у факультета, но в разных полях
+        index.put(4L, "Абв", "Бвг");
+
+        assertEquals(List.of(), index.search("абвг"));
+        assertEquals(List.of(4L), index.search("бвг"));
+    }
+
+    @Test
+    void putAndRemove_ShouldUpdatePostings() {
+        index.put(1L, "Пуффендуй", "Жёлтый");
+        index.remove(3L);
+
+        assertEquals(List.of(), index.search("гриф"));
+        assertEquals(List.of(), index.search("слизерин"));
+        assertEquals(List.of(1L), index.search("пуфф"));
+    }
+}
@@ -0,0 +1,65 @@
+package ru.hogwarts.school.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.hogwarts.school.dto.StudentAgeDto;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+class StudentAgeIndexTest {
+
+    @Mock
+    private StudentRepository studentRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StudentAgeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(studentRepository.streamAllAges()).thenReturn(Stream.of(
+                new StudentAgeDto(5L, 17), new StudentAgeDto(1L, 17), new StudentAgeDto(2L, 11),
+                new StudentAgeDto(3L, 25), new StudentAgeDto(4L, 40)));
+        index = new StudentAgeIndex(studentRepository, transactionManager);
+        index.build();
+    }
+
+    @Test
+    void count_ShouldSumBucketsInRange() {
+        assertEquals(4, index.count(11, 25));
+        assertEquals(2, index.count(12, 17));
+        assertEquals(5, index.count(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(0, index.count(25, 11));
+    }
+
+    @Test
+    void findPage_ShouldContinueAfterCursorInAgeAndIdOrder() {
+        assertEquals(List.of(new StudentAgeDto(2L, 11), new StudentAgeDto(1L, 17)),
+                index.findPage(11, 25, Integer.MIN_VALUE, 0, 2));
+        assertEquals(List.of(new StudentAgeDto(5L, 17), new StudentAgeDto(3L, 25)),
+                index.findPage(11, 25, 17, 1L, 5));
+        assertEquals(List.of(), index.findPage(11, 25, 25, 3L, 5));
+    }
+
+    @Test
+    void mutations_ShouldMoveIdsBetweenBuckets() {
+        index.addAll(List.of(new StudentAgeDto(7L, 12), new StudentAgeDto(6L, 12)));
+        index.moveAfterCommit(1L, 17, 12);
+        index.removeAfterCommit(2L, 11);
+
+        assertEquals(List.of(new StudentAgeDto(1L, 12), new StudentAgeDto(6L, 12), new StudentAgeDto(7L, 12)),
+                index.findPage(11, 12, Integer.MIN_VALUE, 0, 10));
+        assertEquals(1, index.count(17, 17));
+        assertEquals(0, index.count(11, 11));
+    }
+}
@@ -0,0 +1,79 @@
+package ru.hogwarts.school.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.hogwarts.school.dto.StudentNameDto;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+class StudentNameIndexTest {
+
+    @Mock
+    private StudentRepository studentRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StudentNameIndex index;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(studentRepository.streamAllNames()).thenReturn(Stream.of(
+                new StudentNameDto(4L, "Невилл Долгопупс"),
+                new StudentNameDto(1L, "Гарри Поттер"),
+                new StudentNameDto(3L, "Гермиона Грейнджер"),
+                new StudentNameDto(2L, "гарри Уизли")));
+        index = new StudentNameIndex(studentRepository, transactionManager);
+        index.build();
+    }
+
+    @Test
+    void findByPrefix_ShouldIgnoreCaseAndOrderByName() {
+        assertEquals(List.of(1L, 2L, 3L), ids(index.findByPrefix("г", 10)));
+        assertEquals(List.of(1L, 2L), ids(index.findByPrefix("ГАРРИ ", 10)));
+        assertEquals(List.of(1L), ids(index.findByPrefix("гар", 1)));
+        assertEquals(List.of(), ids(index.findByPrefix("Рон", 10)));
+        assertEquals("гарри Уизли", index.findByPrefix("гарри у", 10).get(0).name());
+    }
+
+    @Test
+    void mutations_ShouldBeVisibleBeforeMerge() {
+        index.addAll(List.of(new StudentNameDto(5L, "Гарри Джеймс"), new StudentNameDto(6L, null)));
+        index.renameAfterCommit(2L, "гарри Уизли", "Рон Уизли");
+        index.removeAfterCommit(1L, "Гарри Поттер");
+        index.renameAfterCommit(5L, "Гарри Джеймс", "Гарри Дж.");
+
+        assertEquals(List.of(5L), ids(index.findByPrefix("гарри", 10)));
+        assertEquals("Гарри Дж.", index.findByPrefix("гарри", 10).get(0).name());
+        assertEquals(List.of(2L), ids(index.findByPrefix("рон", 10)));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void addAll_WhenThresholdExceeded_ShouldMergeIntoSortedArray() {
+        List<StudentNameDto> students = new ArrayList<>();
+        for (long id = 100; id < 100 + StudentNameIndex.MIN_MERGE_THRESHOLD + 1; id++) {
+            students.add(new StudentNameDto(id, "Студент " + id));
+        }
+        index.removeAfterCommit(3L, "Гермиона Грейнджер");
+        index.addAll(students);
+
+        assertEquals(List.of(1L, 2L), ids(index.findByPrefix("г", 10)));
+        assertEquals(List.of(100L, 1000L), ids(index.findByPrefix("студент 10", 2)));
+        assertEquals(StudentNameIndex.MIN_MERGE_THRESHOLD + 4, index.size());
+    }
+
+    private static List<Long> ids(List<StudentNameDto> students) {
+        return students.stream().map(StudentNameDto::id).toList();
+    }
+}
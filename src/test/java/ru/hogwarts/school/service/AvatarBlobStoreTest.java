@@ -0,0 +1,179 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import ru.hogwarts.school.repository.AvatarBlobRepository;
+import ru.hogwarts.school.repository.AvatarDataRepository;
+import ru.hogwarts.school.service.AvatarFileStorage.StoredFile;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AvatarBlobStoreTest {
+
+    // SHA-256 от "hello"
+    private static final String HASH = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @Mock
+    private AvatarBlobRepository blobRepository;
+
+    @Mock
+    private AvatarDataRepository dataRepository;
+
+    @Mock
+    private AvatarThumbnailService thumbnailService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path avatarsDir;
+
+    private AvatarBlobStore blobStore;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        blobStore = new AvatarBlobStore(blobRepository, dataRepository, new AvatarFileStorage(),
+                thumbnailService, transactionManager);
+        ReflectionTestUtils.setField(blobStore, "avatarsDir", avatarsDir.toString());
+        ReflectionTestUtils.setField(blobStore, "gcGracePeriod", Duration.ofHours(1));
+    }
+
+    @Test
+    void acquire_WhenContentIsNew_ShouldMoveFileToContentPathAndInsertBlob() throws Exception {
+        when(blobRepository.retain(HASH)).thenReturn(0);
+
+        StoredFile stored = blobStore.acquire(new ByteArrayInputStream("hello".getBytes()), "image/png");
+
+        Path expected = avatarsDir.resolve("blobs").resolve("2c").resolve(HASH + ".png");
+        assertEquals(expected, stored.path());
+        assertEquals("hello", Files.readString(expected));
+        verify(dataRepository).insertBlob(HASH, expected, 5, "image/png");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void acquire_WhenTransactionRollsBack_ShouldDeleteCreatedFile() throws Exception {
+        when(blobRepository.retain(HASH)).thenReturn(0);
+        TransactionSynchronizationManager.initSynchronization();
+
+        StoredFile stored = blobStore.acquire(new ByteArrayInputStream("hello".getBytes()), "image/png");
+        rollBack();
+
+        assertFalse(Files.exists(stored.path()));
+        verify(dataRepository, times(2)).lockHash(HASH);
+    }
+
+    @Test
+    void acquire_WhenRolledBackButSameContentCommittedMeanwhile_ShouldKeepFile() throws Exception {
+        when(blobRepository.retain(HASH)).thenReturn(0);
+        // Параллельная загрузка того же содержимого закоммитила свою строку до уборки
+        when(blobRepository.existsById(HASH)).thenReturn(true);
+        TransactionSynchronizationManager.initSynchronization();
+
+        StoredFile stored = blobStore.acquire(new ByteArrayInputStream("hello".getBytes()), "image/png");
+        rollBack();
+
+        assertTrue(Files.exists(stored.path()));
+    }
+
+    @Test
+    void acquire_WhenTransactionCommits_ShouldKeepFile() throws Exception {
+        when(blobRepository.retain(HASH)).thenReturn(0);
+        TransactionSynchronizationManager.initSynchronization();
+
+        StoredFile stored = blobStore.acquire(new ByteArrayInputStream("hello".getBytes()), "image/png");
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                TransactionSynchronization.STATUS_COMMITTED);
+
+        assertTrue(Files.exists(stored.path()));
+        verify(blobRepository, never()).existsById(anyString());
+    }
+
+    @Test
+    void acquire_WhenContentAlreadyStored_ShouldOnlyRetainAndDropSpooledFile() throws Exception {
+        Path existing = avatarsDir.resolve("existing.png");
+        when(blobRepository.retain(HASH)).thenReturn(1);
+        when(blobRepository.findFilePath(HASH)).thenReturn(Optional.of(existing.toString()));
+
+        StoredFile stored = blobStore.acquire(new ByteArrayInputStream("hello".getBytes()), "image/png");
+
+        assertEquals(existing, stored.path());
+        verify(dataRepository, never()).insertBlob(anyString(), any(Path.class), anyLong(), anyString());
+        try (var spooled = Files.list(avatarsDir.resolve("blobs"))) {
+            assertEquals(0, spooled.count());
+        }
+    }
+
+    @Test
+    void release_WhenAlreadyReleased_ShouldNotFail() {
+        when(blobRepository.release(eq(HASH), any(Instant.class))).thenReturn(0);
+
+        blobStore.release(HASH);
+        blobStore.release(null);
+
+        verify(blobRepository).release(eq(HASH), any(Instant.class));
+    }
+
+    @Test
+    void collectGarbage_ShouldDeleteFileAndVariantsOfUnreferencedBlob() throws Exception {
+        Path file = Files.write(avatarsDir.resolve(HASH + ".png"), new byte[]{1});
+        when(blobRepository.findUnreferenced(any(Instant.class), any(Limit.class))).thenReturn(List.of(HASH));
+        when(blobRepository.findFilePath(HASH)).thenReturn(Optional.of(file.toString()));
+        when(blobRepository.deleteIfUnreferenced(HASH)).thenReturn(1);
+
+        assertEquals(1, blobStore.collectGarbage());
+
+        assertFalse(Files.exists(file));
+        verify(thumbnailService).deleteVariants(HASH, file);
+    }
+
+    @Test
+    void collectGarbage_WhenBlobWasRetainedMeanwhile_ShouldKeepFile() throws Exception {
+        Path file = Files.write(avatarsDir.resolve(HASH + ".png"), new byte[]{1});
+        when(blobRepository.findUnreferenced(any(Instant.class), any(Limit.class))).thenReturn(List.of(HASH));
+        when(blobRepository.findFilePath(HASH)).thenReturn(Optional.of(file.toString()));
+        // Параллельный acquire успел увеличить счётчик: условное удаление строки не сработало
+        when(blobRepository.deleteIfUnreferenced(HASH)).thenReturn(0);
+
+        assertEquals(0, blobStore.collectGarbage());
+
+        assertTrue(Files.exists(file));
+        verify(thumbnailService, never()).deleteVariants(anyString(), any(Path.class));
+    }
+
+    private static void rollBack() {
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                TransactionSynchronization.STATUS_ROLLED_BACK);
+    }
+}
@@ -0,0 +1,70 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AvatarFileStorageTest {
+
+    // SHA-256 от "hello"
+    private static final String HELLO_SHA256 = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    private final AvatarFileStorage storage = new AvatarFileStorage();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void spool_ShouldWriteContentAndComputeSizeAndChecksumInOnePass() throws Exception {
+        byte[] content = "hello".getBytes(StandardCharsets.UTF_8);
+
+        AvatarFileStorage.StoredFile stored = storage.spool(new ByteArrayInputStream(content), tempDir.resolve("staging"));
+
+        assertEquals(5, stored.size());
+        assertEquals(HELLO_SHA256, stored.checksum());
+        assertArrayEquals(content, Files.readAllBytes(stored.path()));
+    }
+
+    @Test
+    void spool_WhenStreamFails_ShouldDeleteTempFile() throws Exception {
+        Path dir = tempDir.resolve("staging");
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("обрыв соединения");
+            }
+        };
+
+        assertThrows(IOException.class, () -> storage.spool(failing, dir));
+
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void moveTo_ShouldReplaceTargetAndKeepMetadata() throws Exception {
+        AvatarFileStorage.StoredFile spooled = storage.spool(
+                new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8)), tempDir);
+        Path target = Files.createDirectories(tempDir.resolve("avatars")).resolve("1.png");
+        Files.writeString(target, "old");
+
+        AvatarFileStorage.StoredFile moved = storage.moveTo(spooled, target);
+
+        assertEquals(target, moved.path());
+        assertEquals(HELLO_SHA256, moved.checksum());
+        assertEquals("hello", Files.readString(target));
+        assertFalse(Files.exists(spooled.path()));
+    }
+}
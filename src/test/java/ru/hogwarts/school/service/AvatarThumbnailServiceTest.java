@@ -0,0 +1,133 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AvatarThumbnailServiceTest {
+
+    private static final String HASH = "abc";
+
+    private AvatarThumbnailService thumbnailService;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() {
+        thumbnailService = new AvatarThumbnailService(List.of(64, 128), 1, 10, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        thumbnailService.shutdown();
+    }
+
+    @Test
+    void getVariant_ShouldScaleDownKeepingAspectRatio() throws Exception {
+        Path original = png(200, 100);
+
+        Path variant = thumbnailService.getVariant(HASH, original, 64);
+
+        BufferedImage image = ImageIO.read(variant.toFile());
+        assertEquals(64, image.getWidth());
+        assertEquals(32, image.getHeight());
+    }
+
+    @Test
+    void getVariant_WhenOriginalIsSmaller_ShouldCopyOriginal() throws Exception {
+        Path original = png(50, 40);
+
+        Path variant = thumbnailService.getVariant(HASH, original, 128);
+
+        assertArrayEquals(Files.readAllBytes(original), Files.readAllBytes(variant));
+    }
+
+    @Test
+    void getVariant_WhenVariantExists_ShouldServeItWithoutReadingOriginal() throws Exception {
+        Path original = png(200, 100);
+        Path first = thumbnailService.getVariant(HASH, original, 64);
+        Files.delete(original);
+
+        assertEquals(first, thumbnailService.getVariant(HASH, original, 64));
+    }
+
+    @Test
+    void getVariant_WhenSizeIsNotConfigured_ShouldReturnBadRequest() throws Exception {
+        Path original = png(200, 100);
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> thumbnailService.getVariant(HASH, original, 100));
+
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    }
+
+    @Test
+    void getVariant_WhenDimensionsExceedLimit_ShouldRejectBeforeDecoding() throws Exception {
+        // Только сигнатура и IHDR на 50000x50000: декодирование упало бы, проверка размеров - нет
+        Path original = Files.write(dir.resolve("bomb.png"), pngHeader(50000, 50000));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> thumbnailService.getVariant(HASH, original, 64));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, e.getStatusCode());
+        assertFalse(Files.exists(dir.resolve(HASH + "_64.png")));
+    }
+
+    @Test
+    void getVariant_WhenFileIsNotAnImage_ShouldReturnUnprocessableEntity() throws Exception {
+        Path original = Files.writeString(dir.resolve("text.png"), "не картинка", StandardCharsets.UTF_8);
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> thumbnailService.getVariant(HASH, original, 64));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, e.getStatusCode());
+    }
+
+    private Path png(int width, int height) throws IOException {
+        Path file = dir.resolve("original-" + width + "x" + height + ".png");
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", file.toFile());
+        return file;
+    }
+
+    private static byte[] pngHeader(int width, int height) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'});
+
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+        DataOutputStream ihdr = new DataOutputStream(chunk);
+        ihdr.writeBytes("IHDR");
+        ihdr.writeInt(width);
+        ihdr.writeInt(height);
+        // 8 бит на канал, RGB, без чересстрочности
+        ihdr.write(new byte[]{8, 2, 0, 0, 0});
+        byte[] data = chunk.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        out.writeInt(data.length - 4);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,111 @@
+package ru.hogwarts.school.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import ru.hogwarts.school.dto.AvatarJobDto;
+import ru.hogwarts.school.dto.AvatarJobStatus;
+import ru.hogwarts.school.dto.AvatarResponseDto;
+import ru.hogwarts.school.metrics.AvatarMetrics;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AvatarUploadJobServiceTest {
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 13};
+
+    @TempDir
+    Path avatarsDir;
+
+    private final AvatarService avatarService = mock(AvatarService.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private AvatarUploadJobService service;
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void submit_ShouldStoreAvatarInBackgroundAndRemoveStagedFile() throws Exception {
+        service = service(1);
+        AvatarResponseDto avatar = new AvatarResponseDto(10L, 1L, PNG.length, "image/png", 0L);
+        when(avatarService.uploadAvatar(eq(1L), eq("image/png"), any())).thenReturn(avatar);
+
+        AvatarJobDto job = service.submit(1L, file("image/png", PNG));
+        AvatarJobDto done = awaitFinished(job.id());
+
+        assertEquals(AvatarJobStatus.DONE, done.status());
+        assertEquals(avatar, done.avatar());
+        assertEquals(1, registry.get("avatar.upload.jobs").tag("outcome", "done").counter().count());
+        try (var staged = Files.list(avatarsDir.resolve("staging"))) {
+            assertEquals(0, staged.count());
+        }
+    }
+
+    @Test
+    void submit_WithoutPngSignature_ShouldFailValidationWithoutStoring() throws Exception {
+        service = service(1);
+
+        AvatarJobDto job = service.submit(1L, file("image/png", "not a png".getBytes()));
+        AvatarJobDto failed = awaitFinished(job.id());
+
+        assertEquals(AvatarJobStatus.FAILED, failed.status());
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY.value(), failed.errorStatus());
+        verifyNoInteractions(avatarService);
+    }
+
+    @Test
+    void submit_WhenQueueIsFull_ShouldRejectWithServiceUnavailable() throws Exception {
+        service = service(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(avatarService.uploadAvatar(eq(1L), eq("image/png"), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+
+        service.submit(1L, file("image/png", PNG));
+        service.submit(1L, file("image/png", PNG));
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> service.submit(1L, file("image/png", PNG)));
+        release.countDown();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+        assertEquals(1, registry.get("avatar.upload.jobs").tag("outcome", "rejected").counter().count());
+    }
+
+    private AvatarUploadJobService service(int queueCapacity) throws Exception {
+        AvatarUploadJobService created = new AvatarUploadJobService(avatarService, new AvatarMetrics(registry),
+                avatarsDir.toString(), 1, queueCapacity, Duration.ofHours(1));
+        created.cleanStaging();
+        return created;
+    }
+
+    private AvatarJobDto awaitFinished(String jobId) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            AvatarJobDto job = service.getJob(jobId);
+            if (job.status() == AvatarJobStatus.DONE || job.status() == AvatarJobStatus.FAILED) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        fail("Задача " + jobId + " не завершилась");
+        return null;
+    }
+
+    private static MockMultipartFile file(String contentType, byte[] content) {
+        return new MockMultipartFile("file", "avatar.png", contentType, content);
+    }
+}
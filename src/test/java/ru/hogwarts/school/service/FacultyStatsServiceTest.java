@@ -0,0 +1,67 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ru.hogwarts.school.dto.StudentRequestDto;
+import ru.hogwarts.school.repository.FacultyStatsRepository;
+
+import java.util.List;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+class FacultyStatsServiceTest {
+
+    @Mock
+    private FacultyStatsRepository repository;
+
+    private FacultyStatsService statsService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        statsService = new FacultyStatsService(repository);
+    }
+
+    @Test
+    void studentChanged_WhenFacultyChanges_ShouldMoveStudentBetweenRows() {
+        statsService.studentChanged(1L, 16, 2L, 17);
+
+        verify(repository).applyDelta(1L, -1, -16);
+        verify(repository).refreshAgeRange(1L);
+        verify(repository).applyDelta(2L, 1, 17);
+        verify(repository).refreshAgeRange(2L);
+    }
+
+    @Test
+    void studentChanged_WhenOnlyAgeChanges_ShouldAdjustAgeSum() {
+        statsService.studentChanged(1L, 16, 1L, 17);
+        statsService.studentChanged(1L, 17, 1L, 17);
+        statsService.studentChanged(null, 16, null, 17);
+
+        verify(repository).applyDelta(1L, 0, 1);
+        verify(repository).refreshAgeRange(1L);
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    void studentsAdded_ShouldUpsertOncePerFaculty() {
+        statsService.studentsAdded(List.of(student(12, 1L), student(14, 1L), student(13, null), student(15, 2L)));
+
+        verify(repository).applyDelta(1L, 2, 26);
+        verify(repository).refreshAgeRange(1L);
+        verify(repository).applyDelta(2L, 1, 15);
+        verify(repository).refreshAgeRange(2L);
+        verifyNoMoreInteractions(repository);
+    }
+
+    private static StudentRequestDto student(int age, Long facultyId) {
+        StudentRequestDto dto = new StudentRequestDto();
+        dto.setName("Студент");
+        dto.setAge(age);
+        dto.setFacultyId(facultyId);
+        return dto;
+    }
+}
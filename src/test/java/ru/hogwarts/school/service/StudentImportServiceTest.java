@@ -0,0 +1,166 @@
+package ru.hogwarts.school.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.hogwarts.school.cache.DtoCaches;
+import ru.hogwarts.school.dto.StudentImportReportDto;
+import ru.hogwarts.school.dto.StudentRequestDto;
+import ru.hogwarts.school.feed.ChangeFeed;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentBatchRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.search.StudentAgeIndex;
+import ru.hogwarts.school.search.StudentNameIndex;
+import ru.hogwarts.school.stats.StudentStatistics;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class StudentImportServiceTest {
+
+    @Mock
+    private StudentBatchRepository batchRepository;
+
+    @Mock
+    private FacultyRepository facultyRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private FacultyStatsService facultyStatsService;
+
+    @Mock
+    private StudentNameIndex nameIndex;
+
+    @Mock
+    private StudentAgeIndex ageIndex;
+
+    @Mock
+    private ChangeFeed changeFeed;
+
+    private StudentStatistics statistics;
+
+    private StudentImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(facultyRepository.findAllIds()).thenReturn(List.of(1L));
+        when(batchRepository.reserveIds(anyInt())).thenAnswer(invocation ->
+                LongStream.rangeClosed(1, invocation.<Integer>getArgument(0)).boxed().toList());
+        statistics = new StudentStatistics(mock(StudentRepository.class), 5);
+        importService = new StudentImportService(batchRepository, facultyRepository, transactionManager, new ObjectMapper(),
+                new DtoCaches(Duration.ofMinutes(1), 100, 100), statistics, facultyStatsService, nameIndex, ageIndex, changeFeed);
+    }
+
+    @Test
+    void importCsv_ShouldSkipHeaderAndReportInvalidRows() throws Exception {
+        String csv = """
+                name,age,facultyId
+                "Поттер, Гарри",17,1
+                Драко Малфой,40,1
+                Полумна Лавгуд,15,7
+                Невилл Долгопупс,16,
+                """;
+
+        StudentImportReportDto report = importService.importCsv(stream(csv));
+
+        assertEquals(4, report.total());
+        assertEquals(2, report.imported());
+        assertEquals(2, report.failed());
+        assertEquals(List.of(3L, 4L), report.errors().stream().map(e -> e.line()).toList());
+        verify(facultyRepository, times(1)).findAllIds();
+        verify(batchRepository).insertAll(anyList(), argThat((List<StudentRequestDto> students) ->
+                students.size() == 2 && students.get(0).getName().equals("Поттер, Гарри")
+                        && students.get(1).getFacultyId() == null));
+    }
+
+    @Test
+    void importNdjson_ShouldInsertInChunks() throws Exception {
+        StringBuilder body = new StringBuilder();
+        int rows = StudentImportService.CHUNK_SIZE * 2 + 5;
+        for (int i = 0; i < rows; i++) {
+            body.append("{\"name\":\"Студент ").append(i).append("\",\"age\":12,\"facultyId\":1}\n");
+        }
+
+        StudentImportReportDto report = importService.importNdjson(stream(body.toString()));
+
+        assertEquals(rows, report.imported());
+        verify(batchRepository, times(3)).insertAll(anyList(), anyList());
+        verify(transactionManager, times(3)).commit(any());
+        verify(facultyStatsService, times(3)).studentsAdded(anyList());
+    }
+
+    @Test
+    void importNdjson_WhenRowFailsInDb_ShouldRetryChunkAndReportOnlyThatRow() throws Exception {
+        doThrow(new DataIntegrityViolationException("duplicate key"))
+                .when(batchRepository).insertAll(anyList(), argThat((List<StudentRequestDto> students) ->
+                        students.stream().anyMatch(s -> s.getName().equals("Студент 500"))));
+        StringBuilder body = new StringBuilder("not json\n");
+        for (int i = 0; i < StudentImportService.CHUNK_SIZE + 1; i++) {
+            body.append("{\"name\":\"Студент ").append(i).append("\",\"age\":12}\n");
+        }
+
+        StudentImportReportDto report = importService.importNdjson(stream(body.toString()));
+
+        assertEquals(StudentImportService.CHUNK_SIZE, report.imported());
+        assertEquals(StudentImportService.CHUNK_SIZE, statistics.snapshot().count());
+        assertEquals(2, report.failed());
+        // Первая строка - некорректный JSON, "Студент 500" - на строке 502
+        assertEquals(List.of(1L, 502L), report.errors().stream().map(e -> e.line()).toList());
+        assertTrue(report.errors().get(1).message().contains("duplicate key"));
+    }
+
+    @Test
+    void importNdjson_WhenEveryRowFailsInDb_ShouldCapReportedErrors() throws Exception {
+        doThrow(new DataIntegrityViolationException("duplicate key"))
+                .when(batchRepository).insertAll(anyList(), anyList());
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < StudentImportService.CHUNK_SIZE + 1; i++) {
+            body.append("{\"name\":\"Студент ").append(i).append("\",\"age\":12}\n");
+        }
+
+        StudentImportReportDto report = importService.importNdjson(stream(body.toString()));
+
+        assertEquals(0, report.imported());
+        assertEquals(StudentImportService.CHUNK_SIZE + 1, report.failed());
+        assertEquals(StudentImportService.MAX_REPORTED_ERRORS, report.errors().size());
+    }
+
+    @Test
+    void importCsv_WhenAgeOverflowsInt_ShouldReportRowInsteadOfNarrowing() throws Exception {
+        // 4294967307 = 2^32 + 11: при сужении до int получилось бы допустимое 11
+        StudentImportReportDto report = importService.importCsv(stream("Гарри Поттер,4294967307,1\n"));
+
+        assertEquals(0, report.imported());
+        assertEquals(1, report.failed());
+        verify(batchRepository, never()).insertAll(anyList(), anyList());
+    }
+
+    @Test
+    void parseCsvLine_ShouldHandleQuotes() {
+        assertEquals(List.of("Рон \"Уизли\"", "17", ""), StudentImportService.parseCsvLine("\"Рон \"\"Уизли\"\"\",17,"));
+        assertThrows(IllegalArgumentException.class, () -> StudentImportService.parseCsvLine("\"Рон,17"));
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
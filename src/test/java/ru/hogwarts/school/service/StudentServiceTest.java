@@ -0,0 +1,123 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import ru.hogwarts.school.cache.DtoCaches;
+import ru.hogwarts.school.dto.StudentRequestDto;
+import ru.hogwarts.school.dto.StudentResponseDto;
+import ru.hogwarts.school.exceptions.InvalidPageRequestException;
+import ru.hogwarts.school.feed.ChangeFeed;
+import ru.hogwarts.school.mapper.StudentMapper;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.search.StudentAgeIndex;
+import ru.hogwarts.school.search.StudentNameIndex;
+import ru.hogwarts.school.stats.StudentStatistics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class StudentServiceTest {
+
+    @Mock
+    private StudentRepository studentRepository;
+
+    @Mock
+    private FacultyRepository facultyRepository;
+
+    @Mock
+    private AvatarRepository avatarRepository;
+
+    @Mock
+    private AvatarBlobStore avatarBlobStore;
+
+    @Mock
+    private FacultyService facultyService;
+
+    @Mock
+    private DtoCaches caches;
+
+    @Mock
+    private StudentStatistics statistics;
+
+    @Mock
+    private FacultyStatsService facultyStatsService;
+
+    @Mock
+    private StudentNameIndex nameIndex;
+
+    @Mock
+    private StudentAgeIndex ageIndex;
+
+    @Mock
+    private ChangeFeed changeFeed;
+
+    private StudentService studentService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        studentService = new StudentService(studentRepository, facultyRepository, avatarRepository, avatarBlobStore,
+                new StudentMapper(), facultyService, caches, statistics, facultyStatsService, nameIndex, ageIndex, changeFeed);
+    }
+
+    @Test
+    void update_WhenStudentMovesToAnotherFaculty_ShouldEvictBothFaculties() {
+        Student student = new Student();
+        student.setId(1L);
+        student.setName("Гарри Поттер");
+        student.setAge(16);
+        student.setFaculty(faculty(1L));
+        when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
+        when(facultyRepository.findById(2L)).thenReturn(Optional.of(faculty(2L)));
+        when(studentRepository.saveAndFlush(any(Student.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        StudentRequestDto dto = new StudentRequestDto();
+        dto.setName("Гарри Поттер");
+        dto.setAge(17);
+        dto.setFacultyId(2L);
+
+        studentService.update(1L, dto);
+
+        verify(caches).evictStudentAfterCommit(1L);
+        verify(caches).evictFacultiesAfterCommit(Arrays.asList(1L, 2L));
+        verify(facultyStatsService).studentChanged(1L, 16, 2L, 17);
+        verify(nameIndex, never()).renameAfterCommit(any(), any(), any());
+        verify(ageIndex).moveAfterCommit(1L, 16, 17);
+        verify(statistics).onUpdated(16, new StudentResponseDto(1L, "Гарри Поттер", 17, 2L));
+    }
+
+    @Test
+    void getAll_WithNonNumericAgeCursor_ShouldRejectCursor() {
+        String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString("age:5:x".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(InvalidPageRequestException.class, () -> studentService.getAll(cursor, 10, "age", false));
+    }
+
+    @Test
+    void findByAgeBetween_WithNonNumericAgeCursor_ShouldRejectCursorBeforeQueryingIndex() {
+        String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString("age:5:x".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(InvalidPageRequestException.class, () -> studentService.findByAgeBetween(10, 20, cursor, 10));
+        verifyNoInteractions(ageIndex);
+    }
+
+    private static Faculty faculty(Long id) {
+        Faculty faculty = new Faculty();
+        faculty.setId(id);
+        return faculty;
+    }
+}
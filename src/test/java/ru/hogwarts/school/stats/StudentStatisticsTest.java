@@ -0,0 +1,87 @@
+package ru.hogwarts.school.stats;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import ru.hogwarts.school.dto.AgeCountDto;
+import ru.hogwarts.school.dto.StudentResponseDto;
+import ru.hogwarts.school.dto.StudentStatsDto;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.when;
+
+class StudentStatisticsTest {
+
+    @Mock
+    private StudentRepository studentRepository;
+
+    private StudentStatistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        statistics = new StudentStatistics(studentRepository, 2);
+    }
+
+    @Test
+    void seed_ShouldBuildHistogramAndRecentList() {
+        when(studentRepository.countByAge()).thenReturn(List.of(new AgeCountDto(11, 2), new AgeCountDto(17, 1),
+                new AgeCountDto(40, 1)));
+        when(studentRepository.findLatest(Limit.of(2))).thenReturn(List.of(student(4L, 40), student(3L, 17)));
+
+        statistics.seed();
+        StudentStatsDto stats = statistics.snapshot();
+
+        assertEquals(4, stats.count());
+        assertEquals(19.75, stats.averageAge());
+        assertEquals(2L, stats.ageHistogram().get(11));
+        assertEquals(1L, stats.ageHistogram().get(17));
+        assertEquals(15, stats.ageHistogram().size());
+        assertEquals(1, stats.outOfRangeAges());
+        assertEquals(List.of(4L, 3L), ids(stats));
+    }
+
+    @Test
+    void mutations_ShouldKeepAggregatesInSync() {
+        statistics.onCreated(student(1L, 12));
+        statistics.onCreated(student(3L, 14));
+        // Коммит с меньшим id пришёл позже
+        statistics.onCreated(student(2L, 16));
+        statistics.onUpdated(14, student(3L, 15));
+
+        StudentStatsDto stats = statistics.snapshot();
+        assertEquals(3, stats.count());
+        assertEquals(0L, stats.ageHistogram().get(14));
+        assertEquals(1L, stats.ageHistogram().get(15));
+        assertEquals(List.of(3L, 2L), ids(stats));
+        assertEquals(15, stats.lastStudents().get(0).age());
+
+        when(studentRepository.findLatest(Limit.of(2))).thenReturn(List.of(student(2L, 16), student(1L, 12)));
+        statistics.onDeleted(3L, 15);
+
+        stats = statistics.snapshot();
+        assertEquals(2, stats.count());
+        assertEquals(14.0, stats.averageAge());
+        assertEquals(List.of(2L, 1L), ids(stats));
+    }
+
+    @Test
+    void snapshot_WhenEmpty_ShouldHaveNoAverage() {
+        assertNull(statistics.snapshot().averageAge());
+        assertEquals(0, statistics.snapshot().count());
+    }
+
+    private static StudentResponseDto student(Long id, int age) {
+        return new StudentResponseDto(id, "Студент " + id, age, null);
+    }
+
+    private static List<Long> ids(StudentStatsDto stats) {
+        return stats.lastStudents().stream().map(StudentResponseDto::id).toList();
+    }
+}